@@ -21,13 +21,17 @@ package org.apache.sling.jcr.base;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
 
 import org.apache.jackrabbit.api.JackrabbitRepository;
 import org.apache.sling.jcr.api.SlingRepository;
@@ -128,6 +132,10 @@ public abstract class AbstractSlingRepositoryManager {
 
     volatile ServiceTracker<RepositoryMount, RepositoryMount> mountTracker;
 
+    private volatile MountedRepository mountedRepository;
+
+    private final Object mountLock = new Object();
+
     private volatile int startupThreadMaxWaitCount;
 
     private volatile long startupThreadWaitMillis;
@@ -299,10 +307,47 @@ public abstract class AbstractSlingRepositoryManager {
      * @return The repository
      */
     protected final Repository getRepository() {
-        ServiceReference<RepositoryMount> ref = mountTracker != null ? mountTracker.getServiceReference() : null;
+        ServiceTracker<RepositoryMount, RepositoryMount> tracker = this.mountTracker;
+        if (tracker == null) {
+            return repository;
+        }
+        // the tracking count changes whenever a mount is added, modified or removed
+        MountedRepository mounted = this.mountedRepository;
+        if (mounted != null && mounted.jcr == repository && mounted.trackingCount == tracker.getTrackingCount()) {
+            return mounted.proxy != null ? mounted.proxy : repository;
+        }
+        synchronized (this.mountLock) {
+            Repository jcr = repository;
+            int trackingCount = tracker.getTrackingCount();
+            mounted = this.mountedRepository;
+            if (mounted != null && mounted.jcr == jcr && mounted.trackingCount == trackingCount) {
+                return mounted.proxy != null ? mounted.proxy : jcr;
+            }
+            ProxyRepository<?> previous = mounted != null ? mounted.proxy : null;
+            ProxyRepository<?> proxy = getProxyRepository(tracker, jcr, previous);
+            if (previous != null && previous != proxy) {
+                previous.close();
+            }
+            if (proxy != null && proxy != previous) {
+                proxy.setSystemLogin(this::loginProxySession);
+            }
+            this.mountedRepository = new MountedRepository(jcr, trackingCount, proxy);
+            return proxy != null ? proxy : jcr;
+        }
+    }
 
-        Repository mountRepo = (ref != null ? mountTracker.getService(ref) : null);
-        Object mounts = ref != null ? ref.getProperty(RepositoryMount.MOUNT_POINTS_KEY) : null;
+    /**
+     * Returns the proxy for the highest ranked mount, keeping the given one
+     * (and the routing state it shares between sessions) as long as only the
+     * mount points change.
+     */
+    private static ProxyRepository<?> getProxyRepository(ServiceTracker<RepositoryMount, RepositoryMount> tracker, Repository jcr, ProxyRepository<?> proxy) {
+        ServiceReference<RepositoryMount> ref = tracker.getServiceReference();
+        Repository mountRepo = (ref != null ? tracker.getService(ref) : null);
+        if (jcr == null || mountRepo == null) {
+            return null;
+        }
+        Object mounts = ref.getProperty(RepositoryMount.MOUNT_POINTS_KEY);
         Set<String> mountPoints = new HashSet<>();
 
         if (mounts != null) {
@@ -318,11 +363,60 @@ public abstract class AbstractSlingRepositoryManager {
         else {
             mountPoints.add("/content/jcrmount");
         }
-        return mountRepo != null ?
-            repository instanceof JackrabbitRepository ?
-                new ProxyJackrabbitRepository((JackrabbitRepository) repository, (JackrabbitRepository) mountRepo, mountPoints) :
-                new ProxyRepository<>(repository, mountRepo, mountPoints) :
-            repository;
+
+        Map<String, Object> properties = getMountProperties(ref);
+        if (proxy == null || proxy.jcr != jcr || proxy.getMount() != mountRepo
+                || !withoutMountPoints(proxy.getProperties()).equals(withoutMountPoints(properties))) {
+            return jcr instanceof JackrabbitRepository ?
+                new ProxyJackrabbitRepository((JackrabbitRepository) jcr, (JackrabbitRepository) mountRepo, mountPoints, properties) :
+                new ProxyRepository<>(jcr, mountRepo, mountPoints, properties);
+        }
+        if (!proxy.getMountPoints().equals(mountPoints)) {
+            // open sessions pick up changed mount points on their own
+            proxy.setMountPoints(mountPoints);
+        }
+        return proxy;
+    }
+
+    /**
+     * Logs in the session the proxy uses to observe the repository and the
+     * mount for its caches, through the proxy itself.
+     */
+    private Session loginProxySession() throws RepositoryException {
+        AbstractSlingRepository2 master = this.masterSlingRepository;
+        return master != null ? master.createAdministrativeSession(this.defaultWorkspace) : null;
+    }
+
+    /**
+     * The proxy built for a repository and a state of the mount tracker, or
+     * {@code null} if there was no mount.
+     */
+    private static final class MountedRepository {
+        final Repository jcr;
+        final int trackingCount;
+        final ProxyRepository<?> proxy;
+
+        MountedRepository(Repository jcr, int trackingCount, ProxyRepository<?> proxy) {
+            this.jcr = jcr;
+            this.trackingCount = trackingCount;
+            this.proxy = proxy;
+        }
+    }
+
+    private static Map<String, Object> withoutMountPoints(Map<String, Object> properties) {
+        Map<String, Object> result = new HashMap<>(properties);
+        result.remove(RepositoryMount.MOUNT_POINTS_KEY);
+        return result;
+    }
+
+    private static Map<String, Object> getMountProperties(ServiceReference<RepositoryMount> ref) {
+        Map<String, Object> properties = new HashMap<>();
+        for (String key : ref.getPropertyKeys()) {
+            Object value = ref.getProperty(key);
+            // arrays are compared by content when checking for changes
+            properties.put(key, value instanceof Object[] ? Arrays.asList((Object[]) value) : value);
+        }
+        return properties;
     }
 
     /**
@@ -639,6 +733,13 @@ public abstract class AbstractSlingRepositoryManager {
             this.mountTracker.close();
             this.mountTracker = null;
         }
+        synchronized (this.mountLock) {
+            MountedRepository mounted = this.mountedRepository;
+            if (mounted != null && mounted.proxy != null) {
+                mounted.proxy.close();
+            }
+            this.mountedRepository = null;
+        }
 
         // ensure the repository is really disposed off
         if (repository != null || isRepositoryServiceRegistered()) {
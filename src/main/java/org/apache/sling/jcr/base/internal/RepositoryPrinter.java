@@ -26,6 +26,8 @@ import java.util.Map;
 
 import javax.jcr.Repository;
 
+import org.apache.sling.jcr.base.internal.mount.ProxyRepository;
+
 /**
  * The Printer Plugin
  */
@@ -65,10 +67,24 @@ public class RepositoryPrinter {
         writeHeader(pw, "Repository Properties");
         final String[] keys = repo.getDescriptorKeys();
         Arrays.sort(keys);
+        boolean metrics = false;
         for (final String key : keys) {
+            if ( key.startsWith(ProxyRepository.METRICS_DESCRIPTOR_PREFIX) ) {
+                metrics = true;
+                continue;
+            }
             final String val = repo.getDescriptor(key);
             writeEntry(pw, key, val);
         }
+        if ( metrics ) {
+            pw.println();
+            writeHeader(pw, "Mount Metrics");
+            for (final String key : keys) {
+                if ( key.startsWith(ProxyRepository.METRICS_DESCRIPTOR_PREFIX) ) {
+                    writeEntry(pw, key.substring(ProxyRepository.METRICS_DESCRIPTOR_PREFIX.length()), repo.getDescriptor(key));
+                }
+            }
+        }
     }
 
     private void writeHeader(final PrintWriter pw, final String value) {
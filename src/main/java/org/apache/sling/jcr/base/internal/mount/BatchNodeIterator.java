@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+
+import org.apache.sling.jcr.base.spi.BatchReader;
+
+/**
+ * Iterates over child nodes of the mount, reading them with their properties
+ * through the {@link BatchReader} in batches. The given iterator only needs
+ * to provide the paths of the children. Children removed in the meantime are
+ * left out.
+ */
+public class BatchNodeIterator implements NodeIterator {
+    private final BatchReader reader;
+    private final NodeIterator stubs;
+    private final int batchSize;
+    private Iterator<Node> batch = Collections.emptyIterator();
+    private long position;
+
+    public BatchNodeIterator(BatchReader reader, NodeIterator stubs, int batchSize) {
+        this.reader = reader;
+        this.stubs = stubs;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!batch.hasNext() && stubs.hasNext()) {
+            List<String> paths = new ArrayList<>(batchSize);
+            try {
+                while (paths.size() < batchSize && stubs.hasNext()) {
+                    paths.add(stubs.nextNode().getPath());
+                }
+                batch = reader.readNodes(paths).values().iterator();
+            } catch (RepositoryException ex) {
+                throw new IllegalStateException("Unable to read the nodes " + paths + " from the mount", ex);
+            }
+        }
+        return batch.hasNext();
+    }
+
+    @Override
+    public Node nextNode() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        position++;
+        return batch.next();
+    }
+
+    @Override
+    public Object next() {
+        return nextNode();
+    }
+
+    @Override
+    public void skip(long skipNum) {
+        for (; skipNum > 0 && batch.hasNext(); skipNum--) {
+            batch.next();
+            position++;
+        }
+        if (skipNum > 0) {
+            stubs.skip(skipNum);
+            position += skipNum;
+        }
+    }
+
+    @Override
+    public long getSize() {
+        return stubs.getSize();
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Routes identifiers using a bloom filter of identifiers seen on the mount.
+ * As the filter may report false positives, identifiers found in it are only
+ * tried on the mount first, never exclusively.
+ */
+public class BloomFilterIdentifierRouter implements IdentifierRouter {
+    private static final int HASHES = 3;
+
+    private final AtomicLongArray bits;
+    private final int mask;
+
+    public BloomFilterIdentifierRouter(int sizeInBits) {
+        int size = Integer.highestOneBit(Math.max(64, sizeInBits));
+        this.bits = new AtomicLongArray(size >>> 6);
+        this.mask = size - 1;
+    }
+
+    @Override
+    public Route route(String identifier) {
+        int hash = identifier.hashCode();
+        int hash2 = spread(hash);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (hash + i * hash2) & mask;
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return Route.JCR_FIRST;
+            }
+        }
+        return Route.MOUNT_FIRST;
+    }
+
+    @Override
+    public void mountIdentifier(String identifier) {
+        int hash = identifier.hashCode();
+        int hash2 = spread(hash);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (hash + i * hash2) & mask;
+            long flag = 1L << bit;
+            long current;
+            while (((current = bits.get(bit >>> 6)) & flag) == 0 && !bits.compareAndSet(bit >>> 6, current, current | flag)) {
+                // retry
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash | 1;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RangeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+
+/**
+ * The combined result of a query against the JCR repository and the mount.
+ * If the query is ordered, the results are merged according to the ordering,
+ * otherwise the mount results follow the JCR results. Offset and limit are
+ * applied to the combined result. Both queries are executed up front, so
+ * that failures are reported by {@code Query.execute()}, but the mount rows
+ * are only read once the JCR rows do not fill the requested page.
+ */
+public class MergedQueryResult implements QueryResult {
+    private final QueryResult result1;
+    private final QueryResult result2;
+    private final QueryOrdering ordering;
+    private final long offset;
+    private final long limit;
+
+    public MergedQueryResult(QueryResult result1, QueryResult result2, QueryOrdering ordering) {
+        this(result1, result2, ordering, 0, -1);
+    }
+
+    public MergedQueryResult(QueryResult result1, QueryResult result2, QueryOrdering ordering, long offset, long limit) {
+        this.result1 = result1;
+        this.result2 = result2;
+        this.ordering = ordering;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    @Override
+    public String[] getColumnNames() throws RepositoryException {
+        return result1.getColumnNames();
+    }
+
+    @Override
+    public RowIterator getRows() throws RepositoryException {
+        List<RangeIterator> iterators = Arrays.asList(result1.getRows(), result2.getRows());
+        Rows rows = ordering != null ? new Rows(iterators, ordering) : new Rows(iterators);
+        rows.page(offset, limit);
+        return rows;
+    }
+
+    @Override
+    public NodeIterator getNodes() throws RepositoryException {
+        MergingIterator<?> iterator;
+        if (ordering != null) {
+            iterator = new Rows(Arrays.asList(result1.getRows(), result2.getRows()), ordering);
+        } else {
+            iterator = new MergingIterator<Node>(Arrays.asList(result1.getNodes(), result2.getNodes()), null);
+        }
+        iterator.page(offset, limit);
+        return new Nodes(iterator);
+    }
+
+    @Override
+    public String[] getSelectorNames() throws RepositoryException {
+        return result1.getSelectorNames();
+    }
+
+    static class Rows extends MergingIterator<Row> implements RowIterator {
+        Rows(List<? extends RangeIterator> iterators) {
+            super(iterators, (Comparator<Row>) null);
+        }
+
+        Rows(List<? extends RangeIterator> iterators, QueryOrdering ordering) throws RepositoryException {
+            super(iterators, ordering, ordering);
+        }
+
+        @Override
+        public Row nextRow() {
+            return next();
+        }
+    }
+
+    static class Nodes implements NodeIterator {
+        private final RangeIterator iterator;
+
+        Nodes(RangeIterator iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public Node nextNode() {
+            Object next = iterator.next();
+            if (next instanceof Row) {
+                try {
+                    return ((Row) next).getNode();
+                } catch (RepositoryException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            return (Node) next;
+        }
+
+        @Override
+        public Object next() {
+            return nextNode();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public void skip(long skipNum) {
+            iterator.skip(skipNum);
+        }
+
+        @Override
+        public long getSize() {
+            return iterator.getSize();
+        }
+
+        @Override
+        public long getPosition() {
+            return iterator.getPosition();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import javax.jcr.RangeIterator;
+import javax.jcr.RepositoryException;
+
+/**
+ * Merges range iterators. With a comparator the iterators are expected to be
+ * sorted and are merged in order, the elements of earlier iterators coming
+ * first on ties. The comparator either compares the elements or the sort keys
+ * obtained once per element. Without a comparator the iterators are
+ * concatenated, which allows to skip whole iterators if their size is known.
+ */
+public class MergingIterator<T> implements RangeIterator {
+    /**
+     * Obtains the key an element is sorted by.
+     */
+    public interface SortKey<T, K> {
+        K of(T element) throws RepositoryException;
+    }
+
+    private static class Head<T> {
+        final T element;
+        final Object key;
+        final int index;
+
+        Head(T element, Object key, int index) {
+            this.element = element;
+            this.key = key;
+            this.index = index;
+        }
+    }
+
+    private final List<? extends RangeIterator> iterators;
+    private final SortKey<? super T, ?> sortKey;
+    private final PriorityQueue<Head<T>> heads;
+    private int current;
+    private long position;
+    private long start;
+    private long limit = -1;
+
+    public MergingIterator(List<? extends RangeIterator> iterators, final Comparator<? super T> comparator) {
+        this.iterators = iterators;
+        this.sortKey = null;
+        this.heads = comparator != null ? createHeads(iterators, comparator) : null;
+        if (heads != null) {
+            for (int i = 0; i < iterators.size(); i++) {
+                advanceUnchecked(i);
+            }
+        }
+    }
+
+    /**
+     * Creates an iterator merging in the order of the sort keys, failing if
+     * the key of a first element cannot be obtained.
+     */
+    public <K> MergingIterator(List<? extends RangeIterator> iterators, SortKey<? super T, K> sortKey, Comparator<? super K> comparator) throws RepositoryException {
+        this.iterators = iterators;
+        this.sortKey = sortKey;
+        this.heads = createHeads(iterators, comparator);
+        for (int i = 0; i < iterators.size(); i++) {
+            advance(i);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, K> PriorityQueue<Head<T>> createHeads(List<? extends RangeIterator> iterators, final Comparator<? super K> comparator) {
+        return new PriorityQueue<>(Math.max(1, iterators.size()), (head1, head2) -> {
+            int result = comparator.compare((K) head1.key, (K) head2.key);
+            return result != 0 ? result : Integer.compare(head1.index, head2.index);
+        });
+    }
+
+    /**
+     * Restricts the iterator to the given page, skipping {@code offset}
+     * elements and returning at most {@code limit} elements if not negative.
+     */
+    public void page(long offset, long limit) {
+        try {
+            skip(offset);
+        } catch (NoSuchElementException ex) {
+            // fewer elements than the offset
+        }
+        this.start = position;
+        this.limit = limit;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance(int index) throws RepositoryException {
+        RangeIterator iterator = iterators.get(index);
+        if (iterator.hasNext()) {
+            T element = (T) iterator.next();
+            heads.add(new Head<>(element, sortKey != null ? sortKey.of(element) : element, index));
+        }
+    }
+
+    private void advanceUnchecked(int index) {
+        try {
+            advance(index);
+        } catch (RepositoryException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (limit >= 0 && position - start >= limit) {
+            return false;
+        }
+        if (heads != null) {
+            return !heads.isEmpty();
+        }
+        while (current < iterators.size()) {
+            if (iterators.get(current).hasNext()) {
+                return true;
+            }
+            current++;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        position++;
+        if (heads == null) {
+            return (T) iterators.get(current).next();
+        }
+        Head<T> head = heads.poll();
+        advanceUnchecked(head.index);
+        return head.element;
+    }
+
+    @Override
+    public void skip(long skipNum) {
+        if (limit >= 0 && position - start + skipNum > limit) {
+            throw new NoSuchElementException();
+        }
+        if (heads != null) {
+            while (skipNum-- > 0) {
+                next();
+            }
+            return;
+        }
+        while (skipNum > 0) {
+            if (current >= iterators.size()) {
+                throw new NoSuchElementException();
+            }
+            RangeIterator iterator = iterators.get(current);
+            long size = iterator.getSize();
+            if (size < 0) {
+                next();
+                skipNum--;
+                continue;
+            }
+            long remaining = size - iterator.getPosition();
+            if (remaining <= skipNum) {
+                if (remaining > 0) {
+                    iterator.skip(remaining);
+                }
+                position += remaining;
+                skipNum -= remaining;
+                current++;
+            } else {
+                iterator.skip(skipNum);
+                position += skipNum;
+                skipNum = 0;
+            }
+        }
+    }
+
+    @Override
+    public long getSize() {
+        long size = 0;
+        for (RangeIterator iterator : iterators) {
+            if (limit >= 0 && size - start >= limit) {
+                // later iterators do not contribute to the page
+                return limit;
+            }
+            long s = iterator.getSize();
+            if (s < 0) {
+                return -1;
+            }
+            size += s;
+        }
+        size = Math.max(0, size - start);
+        return limit >= 0 ? Math.min(size, limit) : size;
+    }
+
+    @Override
+    public long getPosition() {
+        return position - start;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
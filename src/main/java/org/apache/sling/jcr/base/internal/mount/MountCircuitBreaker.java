@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jcr.RepositoryException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens after a number of consecutive failed calls to the mount. While open,
+ * calls to the mount are refused. Once the open duration has passed, calls are
+ * let through again; the next failure opens the breaker again right away, the
+ * next success closes it.
+ */
+public class MountCircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MountCircuitBreaker.class);
+
+    private final int threshold;
+    private final long duration;
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile long openUntil;
+
+    public MountCircuitBreaker(int threshold, long duration) {
+        this.threshold = threshold;
+        this.duration = duration;
+    }
+
+    public boolean isOpen() {
+        long until = openUntil;
+        return until != 0 && System.currentTimeMillis() < until;
+    }
+
+    public void success() {
+        if (failures.get() != 0) {
+            failures.set(0);
+        }
+        if (openUntil != 0) {
+            openUntil = 0;
+            LOGGER.info("Mount is available again");
+        }
+    }
+
+    public void failure(Throwable cause) {
+        if (threshold > 0 && failures.incrementAndGet() >= threshold) {
+            if (!isOpen()) {
+                LOGGER.warn("Mount failed {} times, not calling it for {}ms", failures.get(), duration, cause);
+            }
+            openUntil = System.currentTimeMillis() + duration;
+        }
+    }
+
+    /**
+     * Records the outcome of a failed call. Only errors that indicate an
+     * unavailable mount count, like timeouts, I/O failures and unspecific
+     * errors. Errors about the content, like a missing item, say nothing
+     * about the availability and leave the breaker as it is.
+     */
+    public void record(Throwable ex) {
+        if (ex.getClass() == RepositoryException.class || ex instanceof RuntimeException || isUnavailable(ex)) {
+            failure(ex);
+        }
+    }
+
+    private static boolean isUnavailable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches whether nodes and properties exist on the mount, shared by all
+ * sessions with the same set of principals. Entries expire after a time to
+ * live and the least recently used entries are evicted once the cache is full.
+ * Saved writes through any proxy session, workspace writes and events observed
+ * on the mount through the session of the proxy invalidate the affected
+ * subtree.
+ * <p>
+ * Items themselves are not cached as they belong to the session that read
+ * them.
+ * <p>
+ * The entries are spread over segments of their own lock, so that the least
+ * recently used entries are evicted per segment once the cache holds more than
+ * {@value #SEGMENT_SIZE} entries.
+ */
+public class MountReadCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MountReadCache.class);
+
+    /** The minimum number of entries of a segment. */
+    static final int SEGMENT_SIZE = 64;
+
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * The principals a session shares the entries with, resolved once per
+     * session so that lookups do not hash the whole set.
+     */
+    public static final class Principals {
+        final Set<String> names;
+        private final int hash;
+
+        public Principals(Set<String> names) {
+            this.names = names;
+            this.hash = names.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Principals)) {
+                return false;
+            }
+            Principals other = (Principals) obj;
+            return hash == other.hash && names.equals(other.names);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Key {
+        final Principals principals;
+        final String path;
+        final boolean property;
+        private final int hash;
+
+        Key(Principals principals, String path, boolean property) {
+            this.principals = principals;
+            this.path = path;
+            this.property = property;
+            this.hash = 31 * (31 * principals.hashCode() + path.hashCode()) + Boolean.hashCode(property);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && property == other.property && path.equals(other.path) && principals.equals(other.principals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Cached {
+        final boolean exists;
+        final long expires;
+
+        Cached(boolean exists, long expires) {
+            this.exists = exists;
+            this.expires = expires;
+        }
+    }
+
+    private final class Segment {
+        private final Map<Key, Cached> entries;
+        /** The keys of the entries by path, to invalidate a subtree without a full scan. */
+        private final TreeMap<String, Set<Key>> paths = new TreeMap<>();
+
+        Segment(final int size) {
+            this.entries = new LinkedHashMap<Key, Cached>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+                    if (size() > size) {
+                        unindex(eldest.getKey());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Boolean get(Key key) {
+            Cached cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (ttl > 0 && cached.expires < System.currentTimeMillis()) {
+                entries.remove(key);
+                unindex(key);
+                return null;
+            }
+            return cached.exists;
+        }
+
+        synchronized void put(Key key, boolean exists) {
+            if (entries.put(key, new Cached(exists, ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE)) == null) {
+                paths.computeIfAbsent(key.path, path -> new HashSet<>()).add(key);
+            }
+        }
+
+        private void unindex(Key key) {
+            Set<Key> keys = paths.get(key.path);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                paths.remove(key.path);
+            }
+        }
+
+        synchronized void invalidate(String path) {
+            remove(paths.remove(path));
+            // the descendants sort between "path/" and "path0", '0' follows '/'
+            Map<String, Set<Key>> descendants = paths.subMap(path + "/", path + "0");
+            for (Set<Key> keys : descendants.values()) {
+                remove(keys);
+            }
+            descendants.clear();
+        }
+
+        private void remove(Set<Key> keys) {
+            if (keys != null) {
+                entries.keySet().removeAll(keys);
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            paths.clear();
+        }
+    }
+
+    private final Segment[] segments;
+    private final long ttl;
+    private volatile boolean observed;
+
+    public MountReadCache(final int size, long ttl) {
+        this.ttl = ttl;
+        int count = Math.max(1, Math.min(MAX_SEGMENTS, size / SEGMENT_SIZE));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((size + count - 1) / count);
+        }
+    }
+
+    public Boolean nodeExists(Principals principals, String path) {
+        return get(new Key(principals, path, false));
+    }
+
+    public Boolean propertyExists(Principals principals, String path) {
+        return get(new Key(principals, path, true));
+    }
+
+    public void putNode(Principals principals, String path, boolean exists) {
+        put(new Key(principals, path, false), exists);
+    }
+
+    public void putProperty(Principals principals, String path, boolean exists) {
+        put(new Key(principals, path, true), exists);
+    }
+
+    private Segment segment(Key key) {
+        int hash = key.hashCode();
+        return segments[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private Boolean get(Key key) {
+        return segment(key).get(key);
+    }
+
+    private void put(Key key, boolean exists) {
+        segment(key).put(key, exists);
+    }
+
+    /**
+     * Removes the entries of the given paths and their descendants.
+     */
+    public void invalidate(Collection<String> invalid) {
+        for (String path : invalid) {
+            if (PathUtils.denotesRoot(path)) {
+                clear();
+                return;
+            }
+            for (Segment segment : segments) {
+                segment.invalidate(path);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    boolean isObserved() {
+        return observed;
+    }
+
+    /**
+     * Listens for changes on the mount through the given session, which must
+     * be able to read the whole mount. Returns whether the listener was
+     * registered.
+     */
+    boolean observe(Session session) {
+        try {
+            session.getWorkspace().getObservationManager().addEventListener(this::onEvent,
+                    Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED | Event.PROPERTY_ADDED | Event.PROPERTY_REMOVED,
+                    "/", true, null, null, false);
+            observed = true;
+        } catch (RepositoryException | RuntimeException ex) {
+            LOGGER.debug("Unable to observe the mount", ex);
+        }
+        return observed;
+    }
+
+    private void onEvent(EventIterator events) {
+        List<String> paths = new ArrayList<>();
+        while (events.hasNext()) {
+            try {
+                paths.add(events.nextEvent().getPath());
+            } catch (RepositoryException ex) {
+                clear();
+                return;
+            }
+        }
+        invalidate(paths);
+    }
+}
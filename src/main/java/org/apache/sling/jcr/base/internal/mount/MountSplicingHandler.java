@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+
+import org.apache.jackrabbit.commons.xml.ProxyContentHandler;
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.apache.jackrabbit.util.ISO9075;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Passes the export of a JCR subtree on to the target handler and splices in
+ * the export of the mount at each mount point. A JCR node at a mount point is
+ * replaced in place by the mounted node, mount points without a JCR node are
+ * appended to the children of their parent. Both exports are streamed, only
+ * the paths of the currently open elements are kept.
+ * <p>
+ * Failures of the mount export are thrown as a {@link SAXException} wrapping
+ * the {@link RepositoryException}.
+ */
+public class MountSplicingHandler extends ProxyContentHandler {
+    private static final String SV = "http://www.jcp.org/jcr/sv/1.0";
+
+    private final ProxySession<?> session;
+    private final String root;
+    private final boolean systemView;
+    private final boolean skipBinary;
+    /** The paths of the open elements, empty for elements that are not nodes. */
+    private final Deque<String> paths = new ArrayDeque<>();
+    private final Set<String> spliced = new HashSet<>();
+    private int suppressed;
+
+    public MountSplicingHandler(ProxySession<?> session, ContentHandler handler, String root, boolean systemView, boolean skipBinary) {
+        super(handler);
+        this.session = session;
+        this.root = root;
+        this.systemView = systemView;
+        this.skipBinary = skipBinary;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        if (suppressed > 0) {
+            suppressed++;
+            return;
+        }
+        String path = getNodePath(uri, localName, qName, atts);
+        if (path != null && !path.equals(root) && session.isMount(path)) {
+            // the JCR content at the mount point is hidden by the mount
+            suppressed = 1;
+            splice(path);
+            return;
+        }
+        paths.push(path != null ? path : "");
+        super.startElement(uri, localName, qName, atts);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (suppressed > 0) {
+            suppressed--;
+            return;
+        }
+        String path = paths.pop();
+        if (!path.isEmpty() && session.isMountDirectParent(path)) {
+            for (String mountPoint : session.getMountPoints(path)) {
+                splice(mountPoint);
+            }
+        }
+        super.endElement(uri, localName, qName);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (suppressed == 0) {
+            super.characters(ch, start, length);
+        }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        if (suppressed == 0) {
+            super.ignorableWhitespace(ch, start, length);
+        }
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        if (suppressed == 0) {
+            super.processingInstruction(target, data);
+        }
+    }
+
+    @Override
+    public void skippedEntity(String name) throws SAXException {
+        if (suppressed == 0) {
+            super.skippedEntity(name);
+        }
+    }
+
+    private String getNodePath(String uri, String localName, String qName, Attributes atts) {
+        String name;
+        if (systemView) {
+            if (!(SV.equals(uri) && "node".equals(localName)) && !"sv:node".equals(qName)) {
+                return null;
+            }
+            name = atts.getValue(SV, "name");
+            if (name == null) {
+                name = atts.getValue("sv:name");
+            }
+        } else {
+            name = ISO9075.decode(qName);
+        }
+        if (paths.isEmpty()) {
+            return root;
+        }
+        return name != null ? PathUtils.concat(paths.peek(), name) : null;
+    }
+
+    private void splice(String mountPoint) throws SAXException {
+        // like in listings, mount points are left out while the mount is unavailable
+        if (!spliced.add(mountPoint) || session.repository.breaker.isOpen()) {
+            return;
+        }
+        ContentHandler fragment = new ProxyContentHandler(handler) {
+            @Override
+            public void startDocument() {
+            }
+
+            @Override
+            public void endDocument() {
+            }
+        };
+        try {
+            if (systemView) {
+                session.mount.exportSystemView(mountPoint, fragment, skipBinary, false);
+            } else {
+                session.mount.exportDocumentView(mountPoint, fragment, skipBinary, false);
+            }
+        } catch (PathNotFoundException ex) {
+            // nothing is mounted at this mount point
+        } catch (RepositoryException ex) {
+            throw new SAXException(ex);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jackrabbit.oak.commons.PathUtils;
+
+/**
+ * The routing table of a set of mount points. The ancestors and parents of
+ * the mount points are computed once, so routing a path only needs lookups and
+ * prefix comparisons, but no new strings. Instances are immutable and
+ * replaced as a whole when the mount points change.
+ */
+public class MountTable {
+    final Set<String> mountPoints;
+    private final String[] paths;
+    private final int[] depths;
+    private final Set<String> ancestors = new HashSet<>();
+    private final Map<String, List<String>> children = new HashMap<>();
+
+    public MountTable(Set<String> mountPoints) {
+        this.mountPoints = Collections.unmodifiableSet(new HashSet<>(mountPoints));
+        this.paths = this.mountPoints.toArray(new String[0]);
+        this.depths = new int[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            depths[i] = PathUtils.getDepth(paths[i]);
+        }
+        for (String mountPoint : this.paths) {
+            String parent = PathUtils.getParentPath(mountPoint);
+            children.computeIfAbsent(parent, key -> new ArrayList<>()).add(mountPoint);
+            String ancestor = parent;
+            while (ancestors.add(ancestor) && !PathUtils.denotesRoot(ancestor)) {
+                ancestor = PathUtils.getParentPath(ancestor);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the path is a mount point or below one.
+     */
+    boolean isMount(String path) {
+        if (path == null) {
+            return false;
+        }
+        for (String mountPoint : paths) {
+            if (isSameOrAncestor(mountPoint, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the depth of the mount point the path is in, or -1 if it is not
+     * a mount path.
+     */
+    int getMountDepth(String path) {
+        for (int i = 0; i < paths.length; i++) {
+            if (isSameOrAncestor(paths[i], path)) {
+                return depths[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the path is an ancestor of a mount point.
+     */
+    boolean isMountParent(String path) {
+        return ancestors.contains(path);
+    }
+
+    /**
+     * Returns whether the path is the parent of a mount point.
+     */
+    boolean isMountDirectParent(String path) {
+        return children.containsKey(path);
+    }
+
+    /**
+     * Returns the mount points that are direct children of the given path.
+     */
+    List<String> getMountPoints(String parent) {
+        List<String> result = children.get(parent);
+        return result != null ? Collections.unmodifiableList(result) : Collections.<String>emptyList();
+    }
+
+    /**
+     * Returns the mount points below the given path.
+     */
+    List<String> getMountPointsBelow(String path) {
+        List<String> result = new ArrayList<>();
+        if (ancestors.contains(path)) {
+            for (String mountPoint : paths) {
+                if (mountPoint.length() > path.length() && isSameOrAncestor(path, mountPoint)) {
+                    result.add(mountPoint);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSameOrAncestor(String ancestor, String path) {
+        int length = ancestor.length();
+        if (!path.startsWith(ancestor)) {
+            return false;
+        }
+        return path.length() == length || path.charAt(length) == '/' || ancestor.charAt(length - 1) == '/';
+    }
+}
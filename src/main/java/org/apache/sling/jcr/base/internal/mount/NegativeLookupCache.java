@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the paths a session recently found to not exist. Entries expire
+ * after a short time, so changes saved by other sessions become visible, and
+ * the session clears the cache whenever it writes.
+ */
+public class NegativeLookupCache {
+    private static final int NODE = 1;
+    private static final int PROPERTY = 2;
+
+    private final Map<String, long[]> missing;
+    private final long maxAge;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    public NegativeLookupCache(final int size, long maxAge, LongAdder hits, LongAdder misses) {
+        this.maxAge = maxAge;
+        this.hits = hits;
+        this.misses = misses;
+        this.missing = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    public boolean isMissingNode(String path) {
+        return isMissing(path, NODE);
+    }
+
+    public boolean isMissingProperty(String path) {
+        return isMissing(path, PROPERTY);
+    }
+
+    public boolean isMissingItem(String path) {
+        return isMissing(path, NODE | PROPERTY);
+    }
+
+    public void missingNode(String path) {
+        add(path, NODE);
+    }
+
+    public void missingProperty(String path) {
+        add(path, PROPERTY);
+    }
+
+    public void missingItem(String path) {
+        add(path, NODE | PROPERTY);
+    }
+
+    public void clear() {
+        missing.clear();
+    }
+
+    private boolean isMissing(String path, int kind) {
+        long[] entry = missing.get(path);
+        if (entry != null && entry[1] < System.currentTimeMillis()) {
+            missing.remove(path);
+            entry = null;
+        }
+        if (entry != null && (entry[0] & kind) == kind) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    private void add(String path, int kind) {
+        long[] entry = missing.get(path);
+        if (entry == null) {
+            missing.put(path, new long[] {kind, System.currentTimeMillis() + maxAge});
+        } else {
+            entry[0] |= kind;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+
+/**
+ * Reads the nodes of a mount iterator ahead in batches. While the caller
+ * processes one batch, the next one is read on the executor, so at most two
+ * batches are buffered. As the next batch is only requested once the caller
+ * starts on the current one, an abandoned iterator leaves at most one read
+ * behind and holds no thread.
+ * <p>
+ * The source is read from another thread than the caller's, so this may only
+ * be used with mounts whose sessions allow that.
+ */
+public class PrefetchingNodeIterator implements NodeIterator {
+    private final NodeIterator source;
+    private final MountExecutor executor;
+    private final int batchSize;
+    private final long timeout;
+    private final long size;
+    private Iterator<Node> current = Collections.emptyIterator();
+    private Future<List<Node>> next;
+    private boolean exhausted;
+    private long position;
+
+    public PrefetchingNodeIterator(NodeIterator source, MountExecutor executor, int batchSize, long timeout) {
+        this.source = source;
+        this.executor = executor;
+        this.batchSize = Math.max(1, batchSize);
+        this.timeout = timeout;
+        this.size = source.getSize();
+        prefetch();
+    }
+
+    private void prefetch() {
+        if (exhausted || next != null) {
+            return;
+        }
+        try {
+            next = executor.submit(this::read);
+        } catch (RejectedExecutionException ex) {
+            next = CompletableFuture.completedFuture(read());
+        }
+    }
+
+    private List<Node> read() {
+        List<Node> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && source.hasNext()) {
+            batch.add(source.nextNode());
+        }
+        return batch;
+    }
+
+    private List<Node> await() {
+        Future<List<Node>> future = next;
+        next = null;
+        List<Node> batch;
+        try {
+            batch = MountExecutor.await(future, timeout, "getNodes");
+        } catch (RepositoryException ex) {
+            exhausted = true;
+            throw new IllegalStateException("Unable to read the next nodes from the mount", ex);
+        }
+        if (batch.size() < batchSize) {
+            exhausted = true;
+        }
+        return batch;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (next == null) {
+                return false;
+            }
+            current = await().iterator();
+            // read the following batch while the caller works on this one
+            prefetch();
+        }
+        return true;
+    }
+
+    @Override
+    public Node nextNode() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        position++;
+        return current.next();
+    }
+
+    @Override
+    public Object next() {
+        return nextNode();
+    }
+
+    @Override
+    public void skip(long skipNum) {
+        // the source may be in use by a pending read, so the nodes are read and dropped
+        for (; skipNum > 0; skipNum--) {
+            nextNode();
+        }
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+}
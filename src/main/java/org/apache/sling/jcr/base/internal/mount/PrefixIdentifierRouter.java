@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+/**
+ * Routes identifiers using the prefixes declared by the mount through
+ * {@link org.apache.sling.jcr.base.spi.RepositoryMount#MOUNT_IDENTIFIER_PREFIXES_KEY}.
+ */
+public class PrefixIdentifierRouter implements IdentifierRouter {
+    private final String[] prefixes;
+
+    public PrefixIdentifierRouter(String[] prefixes) {
+        this.prefixes = prefixes.clone();
+    }
+
+    @Override
+    public Route route(String identifier) {
+        for (String prefix : prefixes) {
+            if (identifier.startsWith(prefix)) {
+                return Route.MOUNT;
+            }
+        }
+        return Route.JCR;
+    }
+}
@@ -88,19 +88,25 @@ public class ProxyAccessControlManager<T extends AccessControlManager> extends P
     }
 
     public void setPolicy(String absPath, AccessControlPolicy policy) throws PathNotFoundException, AccessControlException, AccessDeniedException, LockException, VersionException, RepositoryException {
-        if (mountSession.isMountParent(absPath) || mountSession.isMount(absPath)) {
+        boolean isMount = mountSession.isMount(absPath);
+        boolean toMount = isMount || mountSession.isMountParent(absPath);
+        mountSession.markModified(!isMount, toMount ? absPath : null);
+        if (toMount) {
             mount.setPolicy(absPath, policy);
         }
-        if (!mountSession.isMount(absPath)) {
+        if (!isMount) {
             delegate.setPolicy(absPath, policy);
         }
     }
 
     public void removePolicy(String absPath, AccessControlPolicy policy) throws PathNotFoundException, AccessControlException, AccessDeniedException, LockException, VersionException, RepositoryException {
-        if (mountSession.isMountParent(absPath) || mountSession.isMount(absPath)) {
+        boolean isMount = mountSession.isMount(absPath);
+        boolean toMount = isMount || mountSession.isMountParent(absPath);
+        mountSession.markModified(!isMount, toMount ? absPath : null);
+        if (toMount) {
             mount.removePolicy(absPath, policy);
         }
-        if (!mountSession.isMount(absPath)) {
+        if (!isMount) {
             delegate.removePolicy(absPath, policy);
         }
     }
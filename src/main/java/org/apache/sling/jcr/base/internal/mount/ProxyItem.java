@@ -51,26 +51,43 @@ public class ProxyItem<T extends Item> extends ProxyWrapper<T> implements Item {
         return delegate.getName();
     }
 
+    /**
+     * Returns the ancestor from the backend of this item, unless it is above
+     * the mount point of a mount item and has to be looked up in the JCR
+     * repository.
+     */
     @Override
     public Item getAncestor(int depth) throws ItemNotFoundException, AccessDeniedException, RepositoryException {
-        return this.mountSession.getItem(this.delegate.getAncestor(depth).getPath());
+        String path = this.delegate.getPath();
+        int itemDepth = PathUtils.getDepth(path);
+        if (depth < 0 || depth > itemDepth) {
+            throw new ItemNotFoundException("No ancestor at depth " + depth + " of " + path);
+        }
+        int mountDepth = this.mountSession.getMountDepth(path);
+        if (mountDepth < 0 || depth >= mountDepth) {
+            return this.mountSession.read(path, "getAncestor", () -> this.mountSession.wrap(this.delegate.getAncestor(depth)));
+        }
+        return this.mountSession.getItem(PathUtils.getAncestorPath(path, itemDepth - depth));
     }
 
+    /**
+     * Returns the parent from the backend of this item, unless this is a
+     * mount point whose parent is in the JCR repository.
+     */
     @Override
     public Node getParent() throws ItemNotFoundException, AccessDeniedException, RepositoryException {
-
-        String parentPath;
-
-        try {
-            parentPath = this.delegate.getParent().getPath();
-        } catch (Exception ex) {
-            if (ex instanceof AccessDeniedException) {
-                throw (AccessDeniedException) ex;
+        String path = this.delegate.getPath();
+        int mountDepth = this.mountSession.getMountDepth(path);
+        if (mountDepth < 0 || PathUtils.getDepth(path) > mountDepth) {
+            try {
+                return this.mountSession.read(path, "getParent", () -> this.mountSession.wrap(this.delegate.getParent()));
+            } catch (AccessDeniedException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                // resolved by path below
             }
-            parentPath = PathUtils.getParentPath(this.delegate.getPath());
         }
-
-        return this.mountSession.getNode(parentPath);
+        return this.mountSession.getNode(PathUtils.getParentPath(path));
     }
 
     @Override
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+
+import org.apache.jackrabbit.api.observation.JackrabbitEventFilter;
+import org.apache.jackrabbit.api.observation.JackrabbitObservationManager;
+import org.apache.jackrabbit.oak.commons.PathUtils;
+
+/**
+ * Splits the paths of a {@link JackrabbitEventFilter} between the JCR
+ * repository and the mount the same way a single path is split by
+ * {@link ProxyObservationManager}.
+ */
+public class ProxyJackrabbitObservationManager extends ProxyObservationManager implements JackrabbitObservationManager {
+
+    public ProxyJackrabbitObservationManager(ProxySession<?> mountSession, JackrabbitObservationManager delegate, ObservationManager delegate2) {
+        super(mountSession, delegate, delegate2);
+    }
+
+    @Override
+    public void addEventListener(EventListener listener, JackrabbitEventFilter filter) throws RepositoryException {
+        List<String> paths = new ArrayList<>();
+        if (filter.getAbsPath() != null) {
+            paths.add(filter.getAbsPath());
+        }
+        for (String path : filter.getAdditionalPaths()) {
+            paths.add(path);
+        }
+        if (paths.isEmpty()) {
+            addEventListener(listener,
+                    l -> ((JackrabbitObservationManager) delegate).addEventListener(l, filter),
+                    l -> addEventListener(delegate2, l, filter));
+            return;
+        }
+        List<String> jcrPaths = new ArrayList<>();
+        List<String> mountPaths = new ArrayList<>();
+        for (String path : paths) {
+            boolean mount = this.mountSession.isMount(path);
+            if (!mount) {
+                jcrPaths.add(path);
+            }
+            if (mount || filter.getIsDeep() && this.mountSession.isMountParent(path)) {
+                mountPaths.add(path);
+            }
+        }
+        addEventListener(listener,
+                jcrPaths.isEmpty() ? null : l -> ((JackrabbitObservationManager) delegate).addEventListener(l, copy(filter, jcrPaths)),
+                mountPaths.isEmpty() ? null : l -> addEventListener(delegate2, l, copy(filter, mountPaths)));
+    }
+
+    private static void addEventListener(ObservationManager manager, EventListener listener, JackrabbitEventFilter filter) throws RepositoryException {
+        if (manager instanceof JackrabbitObservationManager) {
+            ((JackrabbitObservationManager) manager).addEventListener(listener, filter);
+        } else if (filter.getAdditionalPaths().length == 0) {
+            manager.addEventListener(listener, filter.getEventTypes(), filter.getAbsPath(), filter.getIsDeep(),
+                    filter.getIdentifiers(), filter.getNodeTypes(), filter.getNoLocal());
+        } else {
+            // a listener has a single registration, it observes the common ancestor of all paths
+            String path = filter.getAbsPath();
+            for (String additional : filter.getAdditionalPaths()) {
+                path = getCommonAncestor(path, additional);
+            }
+            manager.addEventListener(listener, filter.getEventTypes(), path, true,
+                    filter.getIdentifiers(), filter.getNodeTypes(), filter.getNoLocal());
+        }
+    }
+
+    private static String getCommonAncestor(String path1, String path2) {
+        while (!path1.equals(path2) && !PathUtils.isAncestor(path1, path2)) {
+            path1 = PathUtils.getParentPath(path1);
+        }
+        return path1;
+    }
+
+    private static JackrabbitEventFilter copy(JackrabbitEventFilter filter, List<String> paths) {
+        JackrabbitEventFilter copy = new JackrabbitEventFilter()
+                .setEventTypes(filter.getEventTypes())
+                .setAbsPath(paths.get(0))
+                .setAdditionalPaths(paths.subList(1, paths.size()).toArray(new String[0]))
+                .setIsDeep(filter.getIsDeep())
+                .setNoLocal(filter.getNoLocal())
+                .setNoExternal(filter.getNoExternal())
+                .setNoInternal(filter.getNoInternal());
+        // the array setters do not accept null
+        if (filter.getIdentifiers() != null) {
+            copy.setIdentifiers(filter.getIdentifiers());
+        }
+        if (filter.getNodeTypes() != null) {
+            copy.setNodeTypes(filter.getNodeTypes());
+        }
+        if (filter.getExcludedPaths() != null) {
+            copy.setExcludedPaths(filter.getExcludedPaths());
+        }
+        return copy;
+    }
+}
@@ -36,6 +36,10 @@ public class ProxyJackrabbitRepository extends ProxyRepository<JackrabbitReposit
         super(jcr, mount, mountPoint);
     }
 
+    public ProxyJackrabbitRepository(JackrabbitRepository jcr, JackrabbitRepository mount, Set<String> mountPoint, Map<String, Object> properties) {
+        super(jcr, mount, mountPoint, properties);
+    }
+
     @Override
     public Session login(Credentials credentials, String workspaceName, Map<String, Object> attributes) throws LoginException, NoSuchWorkspaceException, RepositoryException {
         Session jcrSession = jcr.login(credentials, workspaceName, attributes);
@@ -48,8 +52,8 @@ public class ProxyJackrabbitRepository extends ProxyRepository<JackrabbitReposit
         Session mountSession = mount.login(credentials, workspaceName, attributes);
 
         return jcrSession instanceof JackrabbitSession ?
-                new ProxyJackrabbitSession(this, (JackrabbitSession) jcrSession, mountSession, this.mountPoints) :
-                new ProxySession<>(this, jcrSession, mountSession, this.mountPoints);
+                new ProxyJackrabbitSession(this, (JackrabbitSession) jcrSession, mountSession, getMountPoints()) :
+                new ProxySession<>(this, jcrSession, mountSession, getMountPoints());
     }
 
     @Override
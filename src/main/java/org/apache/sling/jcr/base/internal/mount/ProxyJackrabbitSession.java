@@ -18,6 +18,8 @@
  */
 package org.apache.sling.jcr.base.internal.mount;
 
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 import javax.jcr.AccessDeniedException;
 import javax.jcr.Item;
@@ -31,15 +33,19 @@ import javax.jcr.Workspace;
 import org.apache.jackrabbit.api.JackrabbitSession;
 import org.apache.jackrabbit.api.JackrabbitWorkspace;
 import org.apache.jackrabbit.api.security.principal.PrincipalManager;
+import org.apache.jackrabbit.api.security.user.Authorizable;
+import org.apache.jackrabbit.api.security.user.Group;
 import org.apache.jackrabbit.api.security.user.UserManager;
 
 public class ProxyJackrabbitSession extends ProxySession<JackrabbitSession> implements JackrabbitSession {
+    private ProxyUserManager userManager;
+
     public ProxyJackrabbitSession(ProxyRepository repository, JackrabbitSession jcr, Session mount, Set<String> mountPoints) {
         super(repository, jcr, mount, mountPoints);
     }
 
     @Override
-    public Workspace getWorkspace() {
+    protected Workspace createWorkspace() {
         return new ProxyJackrabbitWorkspace(this, (JackrabbitWorkspace) this.jcr.getWorkspace(), (JackrabbitWorkspace) this.mount.getWorkspace());
     }
 
@@ -50,35 +56,60 @@ public class ProxyJackrabbitSession extends ProxySession<JackrabbitSession> impl
         return jcr.hasPermission(absPath, actions);
     }
 
+    @Override
+    protected Set<String> getPrincipalNames() throws RepositoryException {
+        String userID = getUserID();
+        Authorizable authorizable = userID != null ? jcr.getUserManager().getAuthorizable(userID) : null;
+        if (authorizable == null) {
+            return null;
+        }
+        Set<String> names = new HashSet<>();
+        names.add(authorizable.getPrincipal().getName());
+        for (Iterator<Group> groups = authorizable.memberOf(); groups.hasNext(); ) {
+            names.add(groups.next().getPrincipal().getName());
+        }
+        return names;
+    }
+
     public PrincipalManager getPrincipalManager() throws AccessDeniedException, UnsupportedRepositoryOperationException, RepositoryException {
         return jcr.getPrincipalManager();
     }
 
     public UserManager getUserManager() throws AccessDeniedException, UnsupportedRepositoryOperationException, RepositoryException {
-        return new ProxyUserManager(this, jcr.getUserManager(), ((JackrabbitSession) mount).getUserManager());
+        // authorizables handed out by the user manager are modified without going through the proxy,
+        // save() and hasPendingChanges() ask the jcr session for those
+        if (userManager == null) {
+            userManager = new ProxyUserManager(this, jcr.getUserManager(), ((JackrabbitSession) mount).getUserManager());
+        }
+        return userManager;
     }
 
-    public Item getItemOrNull(String absPath) throws RepositoryException {
-        if (super.itemExists(absPath)) {
-            return super.getItem(absPath);
-        } else {
-            return null;
+    @Override
+    public void save() throws RepositoryException {
+        if (userManager != null) {
+            // the mount side of authorizables is created before anything is persisted
+            userManager.applyPending();
         }
+        super.save();
     }
 
-    public Property getPropertyOrNull(String absPath) throws RepositoryException {
-        if (super.propertyExists(absPath)) {
-            return super.getProperty(absPath);
-        } else {
-            return null;
+    @Override
+    public void refresh(boolean keepChanges) throws RepositoryException {
+        if (!keepChanges && userManager != null) {
+            userManager.discardPending();
         }
+        super.refresh(keepChanges);
+    }
+
+    public Item getItemOrNull(String absPath) throws RepositoryException {
+        return itemOrNull(absPath);
+    }
+
+    public Property getPropertyOrNull(String absPath) throws RepositoryException {
+        return propertyOrNull(absPath);
     }
 
     public Node getNodeOrNull(String absPath) throws RepositoryException {
-        if (super.nodeExists(absPath)) {
-            return super.getNode(absPath);
-        } else {
-            return null;
-        }
+        return nodeOrNull(absPath);
     }
 }
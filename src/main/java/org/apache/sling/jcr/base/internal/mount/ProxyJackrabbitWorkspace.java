@@ -20,12 +20,16 @@ package org.apache.sling.jcr.base.internal.mount;
 
 import javax.jcr.AccessDeniedException;
 import javax.jcr.RepositoryException;
+import javax.jcr.observation.ObservationManager;
 
 import org.apache.jackrabbit.api.JackrabbitWorkspace;
+import org.apache.jackrabbit.api.observation.JackrabbitObservationManager;
 import org.apache.jackrabbit.api.security.authorization.PrivilegeManager;
 import org.xml.sax.InputSource;
 
 public class ProxyJackrabbitWorkspace extends ProxyWorkspace<JackrabbitWorkspace> implements JackrabbitWorkspace {
+    private PrivilegeManager privilegeManager;
+
     public ProxyJackrabbitWorkspace(ProxySession mountSession, JackrabbitWorkspace delegate, JackrabbitWorkspace delegate2) {
         super(mountSession, delegate, delegate2);
     }
@@ -35,8 +39,19 @@ public class ProxyJackrabbitWorkspace extends ProxyWorkspace<JackrabbitWorkspace
         this.delegate.createWorkspace(workspaceName, workspaceTemplate);
     }
 
+    @Override
+    protected ObservationManager createObservationManager(ObservationManager manager, ObservationManager manager2) {
+        if (manager instanceof JackrabbitObservationManager) {
+            return new ProxyJackrabbitObservationManager(this.mountSession, (JackrabbitObservationManager) manager, manager2);
+        }
+        return super.createObservationManager(manager, manager2);
+    }
+
     @Override
     public PrivilegeManager getPrivilegeManager() throws RepositoryException {
-        return new ProxyPrivilegeManager(mountSession, this.delegate.getPrivilegeManager(), this.delegate2.getPrivilegeManager());
+        if (privilegeManager == null) {
+            privilegeManager = new ProxyPrivilegeManager(mountSession, this.delegate.getPrivilegeManager(), this.delegate2.getPrivilegeManager());
+        }
+        return privilegeManager;
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.jcr.AccessDeniedException;
+import javax.jcr.InvalidItemStateException;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import javax.jcr.UnsupportedRepositoryOperationException;
+import javax.jcr.lock.Lock;
+import javax.jcr.lock.LockException;
+import javax.jcr.lock.LockManager;
+
+/**
+ * Dispatches lock operations by path to the lock manager of the JCR repository
+ * or of the mount. Lock tokens are added to whichever accepts them.
+ */
+public class ProxyLockManager extends ProxyWrapper<LockManager> implements LockManager {
+    private final LockManager delegate2;
+
+    public ProxyLockManager(ProxySession<?> mountSession, LockManager delegate, LockManager delegate2) {
+        super(mountSession, delegate);
+        this.delegate2 = delegate2;
+    }
+
+    private LockManager getManager(String absPath) throws RepositoryException {
+        if (!this.mountSession.isMount(absPath)) {
+            return delegate;
+        }
+        if (delegate2 == null) {
+            throw new UnsupportedRepositoryOperationException("The mount does not support locking");
+        }
+        return delegate2;
+    }
+
+    @Override
+    public void addLockToken(String lockToken) throws LockException, RepositoryException {
+        // a token is only accepted by the manager which knows its lock
+        RepositoryException failure;
+        try {
+            delegate.addLockToken(lockToken);
+            failure = null;
+        } catch (RepositoryException ex) {
+            failure = ex;
+        }
+        if (delegate2 != null) {
+            try {
+                delegate2.addLockToken(lockToken);
+                return;
+            } catch (RepositoryException ex) {
+                if (failure == null) {
+                    return;
+                }
+                failure.addSuppressed(ex);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public Lock getLock(String absPath) throws PathNotFoundException, LockException, AccessDeniedException, RepositoryException {
+        return this.mountSession.wrap(getManager(absPath).getLock(absPath));
+    }
+
+    @Override
+    public String[] getLockTokens() throws RepositoryException {
+        Set<String> tokens = new LinkedHashSet<>(Arrays.asList(delegate.getLockTokens()));
+        if (delegate2 != null) {
+            tokens.addAll(Arrays.asList(delegate2.getLockTokens()));
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    @Override
+    public boolean holdsLock(String absPath) throws PathNotFoundException, RepositoryException {
+        return getManager(absPath).holdsLock(absPath);
+    }
+
+    @Override
+    public Lock lock(String absPath, boolean isDeep, boolean isSessionScoped, long timeoutHint, String ownerInfo) throws LockException, PathNotFoundException, AccessDeniedException, InvalidItemStateException, RepositoryException {
+        return this.mountSession.wrap(getManager(absPath).lock(absPath, isDeep, isSessionScoped, timeoutHint, ownerInfo));
+    }
+
+    @Override
+    public boolean isLocked(String absPath) throws PathNotFoundException, RepositoryException {
+        return getManager(absPath).isLocked(absPath);
+    }
+
+    @Override
+    public void removeLockToken(String lockToken) throws LockException, RepositoryException {
+        boolean removed = false;
+        if (Arrays.asList(delegate.getLockTokens()).contains(lockToken)) {
+            delegate.removeLockToken(lockToken);
+            removed = true;
+        }
+        if (delegate2 != null && Arrays.asList(delegate2.getLockTokens()).contains(lockToken)) {
+            delegate2.removeLockToken(lockToken);
+            removed = true;
+        }
+        if (!removed) {
+            throw new LockException("Lock token not held: " + lockToken);
+        }
+    }
+
+    @Override
+    public void unlock(String absPath) throws PathNotFoundException, LockException, AccessDeniedException, InvalidItemStateException, RepositoryException {
+        getManager(absPath).unlock(absPath);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the calls the proxy routes to the JCR repository and the mount, per
+ * class of operation, together with a latency histogram. All counters are
+ * allocated up front, recording a call only updates {@link LongAdder}s.
+ */
+public class ProxyMetrics {
+    public enum Operation {
+        READ, WRITE, QUERY, SAVE, ITERATE
+    }
+
+    /** Upper bounds of the latency buckets in microseconds, the last bucket is unbounded. */
+    private static final long[] BUCKETS = {100, 1000, 10000, 100000, 1000000};
+    private static final String[] BUCKET_NAMES = {"100us", "1ms", "10ms", "100ms", "1s", "inf"};
+    private static final String[] BACKENDS = {"jcr", "mount"};
+    private static final int OPERATIONS = Operation.values().length;
+
+    private final LongAdder[] calls = new LongAdder[2 * OPERATIONS];
+    private final LongAdder[] nanos = new LongAdder[2 * OPERATIONS];
+    private final LongAdder[][] latencies = new LongAdder[2 * OPERATIONS][BUCKETS.length + 1];
+
+    public ProxyMetrics() {
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = new LongAdder();
+            nanos[i] = new LongAdder();
+            for (int j = 0; j < latencies[i].length; j++) {
+                latencies[i][j] = new LongAdder();
+            }
+        }
+    }
+
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a call without its latency, for calls that only change the
+     * transient space.
+     */
+    public void count(boolean mount, Operation operation) {
+        calls[index(mount, operation)].increment();
+    }
+
+    /**
+     * Records a call that started at {@code start} as returned by
+     * {@link #start()}.
+     */
+    public void record(boolean mount, Operation operation, long start) {
+        long duration = System.nanoTime() - start;
+        int index = index(mount, operation);
+        calls[index].increment();
+        nanos[index].add(duration);
+        long micros = TimeUnit.NANOSECONDS.toMicros(duration);
+        int bucket = 0;
+        while (bucket < BUCKETS.length && micros > BUCKETS[bucket]) {
+            bucket++;
+        }
+        latencies[index][bucket].increment();
+    }
+
+    /**
+     * Returns the current values keyed by backend, operation and counter,
+     * e.g. {@code mount.read.calls}, {@code mount.read.millis} or
+     * {@code mount.read.latency.10ms} for the calls that took up to 10ms.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int backend = 0; backend < BACKENDS.length; backend++) {
+            for (Operation operation : Operation.values()) {
+                int index = index(backend == 1, operation);
+                String prefix = BACKENDS[backend] + "." + operation.name().toLowerCase(Locale.ENGLISH) + ".";
+                result.put(prefix + "calls", calls[index].sum());
+                result.put(prefix + "millis", TimeUnit.NANOSECONDS.toMillis(nanos[index].sum()));
+                for (int bucket = 0; bucket < BUCKET_NAMES.length; bucket++) {
+                    result.put(prefix + "latency." + BUCKET_NAMES[bucket], latencies[index][bucket].sum());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int index(boolean mount, Operation operation) {
+        return (mount ? OPERATIONS : 0) + operation.ordinal();
+    }
+}
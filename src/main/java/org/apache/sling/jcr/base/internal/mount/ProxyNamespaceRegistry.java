@@ -24,44 +24,65 @@ import javax.jcr.NamespaceRegistry;
 import javax.jcr.RepositoryException;
 import javax.jcr.UnsupportedRepositoryOperationException;
 
+/**
+ * Answers lookups from the repository wide snapshot of the {@link TypeCache},
+ * or from the registry if there is none. Unknown prefixes and URIs are passed
+ * on to report the error.
+ */
 public class ProxyNamespaceRegistry implements NamespaceRegistry {
     private final NamespaceRegistry jcr;
     private final NamespaceRegistry mount;
+    private final TypeCache cache;
 
-    public ProxyNamespaceRegistry(NamespaceRegistry jcr, NamespaceRegistry mount) {
+    public ProxyNamespaceRegistry(NamespaceRegistry jcr, NamespaceRegistry mount, TypeCache cache) {
         this.jcr = jcr;
         this.mount = mount;
+        this.cache = cache;
     }
 
     @Override
     public void registerNamespace(String prefix, String uri) throws NamespaceException, UnsupportedRepositoryOperationException, AccessDeniedException, RepositoryException {
-        jcr.registerNamespace(prefix, uri);
-        mount.registerNamespace(prefix, uri);
+        try {
+            jcr.registerNamespace(prefix, uri);
+            mount.registerNamespace(prefix, uri);
+        } finally {
+            cache.invalidate();
+        }
     }
 
     @Override
     public void unregisterNamespace(String prefix) throws NamespaceException, UnsupportedRepositoryOperationException, AccessDeniedException, RepositoryException {
-        jcr.unregisterNamespace(prefix);
-        mount.unregisterNamespace(prefix);
+        try {
+            jcr.unregisterNamespace(prefix);
+            mount.unregisterNamespace(prefix);
+        } finally {
+            cache.invalidate();
+        }
     }
 
     @Override
     public String[] getPrefixes() throws RepositoryException {
-        return jcr.getPrefixes();
+        TypeCache.Namespaces namespaces = cache.getNamespaces(jcr);
+        return namespaces != null ? namespaces.prefixArray.clone() : jcr.getPrefixes();
     }
 
     @Override
     public String[] getURIs() throws RepositoryException {
-        return jcr.getURIs();
+        TypeCache.Namespaces namespaces = cache.getNamespaces(jcr);
+        return namespaces != null ? namespaces.uriArray.clone() : jcr.getURIs();
     }
 
     @Override
     public String getURI(String prefix) throws NamespaceException, RepositoryException {
-        return jcr.getURI(prefix);
+        TypeCache.Namespaces namespaces = cache.getNamespaces(jcr);
+        String uri = namespaces != null ? namespaces.uris.get(prefix) : null;
+        return uri != null ? uri : jcr.getURI(prefix);
     }
 
     @Override
     public String getPrefix(String uri) throws NamespaceException, RepositoryException {
-        return jcr.getPrefix(uri);
+        TypeCache.Namespaces namespaces = cache.getNamespaces(jcr);
+        String prefix = namespaces != null ? namespaces.prefixes.get(uri) : null;
+        return prefix != null ? prefix : jcr.getPrefix(uri);
     }
 }
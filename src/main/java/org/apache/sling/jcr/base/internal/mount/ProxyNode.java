@@ -68,86 +68,103 @@ public class ProxyNode extends ProxyItem<Node> implements Node {
 
     @Override
     public void orderBefore(String srcChildRelPath, String destChildRelPath) throws UnsupportedRepositoryOperationException, VersionException, ConstraintViolationException, ItemNotFoundException, LockException, RepositoryException {
+        this.mountSession.markModified(getPath());
         this.delegate.orderBefore(srcChildRelPath, destChildRelPath);
     }
 
     @Override
     public Property setProperty(String name, Value value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, Value value, int type) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value, type));
     }
 
     @Override
     public Property setProperty(String name, Value[] values) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, values));
     }
 
     @Override
     public Property setProperty(String name, Value[] values, int type) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, values, type));
     }
 
     @Override
     public Property setProperty(String name, String[] values) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, values));
     }
 
     @Override
     public Property setProperty(String name, String[] values, int type) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, values, type));
     }
 
     @Override
     public Property setProperty(String name, String value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, String value, int type) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value, type));
     }
 
     @Override
     public Property setProperty(String name, InputStream value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, Binary value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, boolean value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, double value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, BigDecimal value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, long value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, Calendar value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
     @Override
     public Property setProperty(String name, Node value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         return this.mountSession.wrap(this.delegate.setProperty(name, value));
     }
 
@@ -158,37 +175,37 @@ public class ProxyNode extends ProxyItem<Node> implements Node {
 
     @Override
     public NodeIterator getNodes() throws RepositoryException {
-        return this.mountSession.getNodes(getPath(), this.delegate.getNodes());
+        return this.mountSession.getNodes(getPath(), this.mountSession.iterate(getPath(), "getNodes", () -> this.mountSession.getChildNodes(this.delegate)));
     }
 
     @Override
     public NodeIterator getNodes(String namePattern) throws RepositoryException {
-        return this.mountSession.getNodes(getPath(), this.delegate.getNodes(namePattern));
+        return this.mountSession.getNodes(getPath(), this.mountSession.iterate(getPath(), "getNodes", () -> this.delegate.getNodes(namePattern)));
     }
 
     @Override
     public NodeIterator getNodes(String[] nameGlobs) throws RepositoryException {
-        return this.mountSession.getNodes(getPath(), this.delegate.getNodes(nameGlobs));
+        return this.mountSession.getNodes(getPath(), this.mountSession.iterate(getPath(), "getNodes", () -> this.delegate.getNodes(nameGlobs)));
     }
 
     @Override
     public Property getProperty(String relPath) throws PathNotFoundException, RepositoryException {
-        return this.mountSession.wrap(this.delegate.getProperty(relPath));
+        return this.mountSession.wrap(this.mountSession.read(getPath(), "getProperty", () -> this.delegate.getProperty(relPath)));
     }
 
     @Override
     public PropertyIterator getProperties() throws RepositoryException {
-        return this.mountSession.wrap(this.delegate.getProperties());
+        return this.mountSession.wrap(this.mountSession.iterate(getPath(), "getProperties", () -> this.delegate.getProperties()));
     }
 
     @Override
     public PropertyIterator getProperties(String namePattern) throws RepositoryException {
-        return this.mountSession.wrap(this.delegate.getProperties(namePattern));
+        return this.mountSession.wrap(this.mountSession.iterate(getPath(), "getProperties", () -> this.delegate.getProperties(namePattern)));
     }
 
     @Override
     public PropertyIterator getProperties(String[] nameGlobs) throws RepositoryException {
-        return this.mountSession.wrap(this.delegate.getProperties(nameGlobs));
+        return this.mountSession.wrap(this.mountSession.iterate(getPath(), "getProperties", () -> this.delegate.getProperties(nameGlobs)));
     }
 
     @Override
@@ -198,12 +215,12 @@ public class ProxyNode extends ProxyItem<Node> implements Node {
 
     @Override
     public String getUUID() throws UnsupportedRepositoryOperationException, RepositoryException {
-        return this.delegate.getUUID();
+        return this.mountSession.identified(getPath(), this.delegate.getUUID());
     }
 
     @Override
     public String getIdentifier() throws RepositoryException {
-        return this.delegate.getIdentifier();
+        return this.mountSession.identified(getPath(), this.delegate.getIdentifier());
     }
 
     @Override
@@ -268,16 +285,19 @@ public class ProxyNode extends ProxyItem<Node> implements Node {
 
     @Override
     public void setPrimaryType(String nodeTypeName) throws NoSuchNodeTypeException, VersionException, ConstraintViolationException, LockException, RepositoryException {
+        this.mountSession.markModified(getPath());
         this.delegate.setPrimaryType(nodeTypeName);
     }
 
     @Override
     public void addMixin(String mixinName) throws NoSuchNodeTypeException, VersionException, ConstraintViolationException, LockException, RepositoryException {
+        this.mountSession.markModified(getPath());
         this.delegate.addMixin(mixinName);
     }
 
     @Override
     public void removeMixin(String mixinName) throws NoSuchNodeTypeException, VersionException, ConstraintViolationException, LockException, RepositoryException {
+        this.mountSession.markModified(getPath());
         this.delegate.removeMixin(mixinName);
     }
 
@@ -293,7 +313,10 @@ public class ProxyNode extends ProxyItem<Node> implements Node {
 
     @Override
     public Version checkin() throws VersionException, UnsupportedRepositoryOperationException, InvalidItemStateException, LockException, RepositoryException {
-        return this.delegate.checkin();
+        String path = getPath();
+        Version version = this.delegate.checkin();
+        this.mountSession.workspaceWritten(this.mountSession.isMount(path), path);
+        return ProxyVersion.wrap(this.mountSession, version, this.mountSession.isMount(path));
     }
 
     @Override
@@ -303,22 +326,27 @@ public class ProxyNode extends ProxyItem<Node> implements Node {
 
     @Override
     public void doneMerge(Version version) throws VersionException, InvalidItemStateException, UnsupportedRepositoryOperationException, RepositoryException {
-        this.delegate.doneMerge(version);
+        this.delegate.doneMerge(this.mountSession.unwrap(version));
     }
 
     @Override
     public void cancelMerge(Version version) throws VersionException, InvalidItemStateException, UnsupportedRepositoryOperationException, RepositoryException {
-        this.delegate.cancelMerge(version);
+        this.delegate.cancelMerge(this.mountSession.unwrap(version));
     }
 
     @Override
     public void update(String srcWorkspace) throws NoSuchWorkspaceException, AccessDeniedException, LockException, InvalidItemStateException, RepositoryException {
+        String path = getPath();
         this.delegate.update(srcWorkspace);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(path), path);
     }
 
     @Override
     public NodeIterator merge(String srcWorkspace, boolean bestEffort) throws NoSuchWorkspaceException, AccessDeniedException, MergeException, LockException, InvalidItemStateException, RepositoryException {
-        return this.mountSession.wrap(this.delegate.merge(srcWorkspace, bestEffort));
+        String path = getPath();
+        NodeIterator failed = this.delegate.merge(srcWorkspace, bestEffort);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(path), path);
+        return this.mountSession.wrap(failed);
     }
 
     @Override
@@ -333,11 +361,13 @@ public class ProxyNode extends ProxyItem<Node> implements Node {
 
     @Override
     public void removeSharedSet() throws VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         this.delegate.removeSharedSet();
     }
 
     @Override
     public void removeShare() throws VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         this.delegate.removeShare();
     }
 
@@ -348,32 +378,40 @@ public class ProxyNode extends ProxyItem<Node> implements Node {
 
     @Override
     public void restore(String versionName, boolean removeExisting) throws VersionException, ItemExistsException, UnsupportedRepositoryOperationException, LockException, InvalidItemStateException, RepositoryException {
+        String path = getPath();
         this.delegate.restore(versionName, removeExisting);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(path), path);
     }
 
     @Override
     public void restore(Version version, boolean removeExisting) throws VersionException, ItemExistsException, InvalidItemStateException, UnsupportedRepositoryOperationException, LockException, RepositoryException {
-        this.delegate.restore(version, removeExisting);
+        String path = getPath();
+        this.delegate.restore(this.mountSession.unwrap(version), removeExisting);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(path), path);
     }
 
     @Override
     public void restore(Version version, String relPath, boolean removeExisting) throws PathNotFoundException, ItemExistsException, VersionException, ConstraintViolationException, UnsupportedRepositoryOperationException, LockException, InvalidItemStateException, RepositoryException {
-        this.delegate.restore(version, relPath, removeExisting);
+        String path = getPath();
+        this.delegate.restore(this.mountSession.unwrap(version), relPath, removeExisting);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(path), path);
     }
 
     @Override
     public void restoreByLabel(String versionLabel, boolean removeExisting) throws VersionException, ItemExistsException, UnsupportedRepositoryOperationException, LockException, InvalidItemStateException, RepositoryException {
+        String path = getPath();
         this.delegate.restoreByLabel(versionLabel, removeExisting);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(path), path);
     }
 
     @Override
     public VersionHistory getVersionHistory() throws UnsupportedRepositoryOperationException, RepositoryException {
-        return this.delegate.getVersionHistory();
+        return ProxyVersionHistory.wrap(this.mountSession, this.delegate.getVersionHistory(), this.mountSession.isMount(getPath()));
     }
 
     @Override
     public Version getBaseVersion() throws UnsupportedRepositoryOperationException, RepositoryException {
-        return this.delegate.getBaseVersion();
+        return ProxyVersion.wrap(this.mountSession, this.delegate.getBaseVersion(), this.mountSession.isMount(getPath()));
     }
 
     @Override
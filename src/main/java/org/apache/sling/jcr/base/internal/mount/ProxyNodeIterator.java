@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+
+public class ProxyNodeIterator extends ProxyWrapper<NodeIterator> implements NodeIterator {
+    public ProxyNodeIterator(ProxySession<?> mountSession, NodeIterator delegate) {
+        super(mountSession, delegate);
+    }
+
+    public Node nextNode() {
+        return wrap(delegate.nextNode());
+    }
+
+    protected Node wrap(Node node) {
+        return this.mountSession.wrap(node);
+    }
+
+    public Object next() {
+        return nextNode();
+    }
+
+    public boolean hasNext() {
+        return delegate.hasNext();
+    }
+
+    public void skip(long skipNum) {
+        delegate.skip(skipNum);
+    }
+
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    public long getPosition() {
+        return delegate.getPosition();
+    }
+
+    public void remove() {
+        delegate.remove();
+    }
+}
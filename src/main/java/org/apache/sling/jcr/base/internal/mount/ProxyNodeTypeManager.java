@@ -18,6 +18,9 @@
  */
 package org.apache.sling.jcr.base.internal.mount;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.jcr.RepositoryException;
 import javax.jcr.UnsupportedRepositoryOperationException;
 import javax.jcr.nodetype.InvalidNodeTypeDefinitionException;
@@ -31,23 +34,44 @@ import javax.jcr.nodetype.NodeTypeManager;
 import javax.jcr.nodetype.NodeTypeTemplate;
 import javax.jcr.nodetype.PropertyDefinitionTemplate;
 
+/**
+ * Answers {@link #hasNodeType(String)} from the repository wide snapshot of
+ * the {@link TypeCache} and keeps the node types this session looked up until
+ * the snapshot is invalidated. Node types themselves are not shared between
+ * sessions as they belong to the session that read them.
+ */
 public class ProxyNodeTypeManager implements NodeTypeManager {
     private final NodeTypeManager nodeTypeManager;
     private final NodeTypeManager nodeTypeManager1;
+    private final TypeCache cache;
+    private final Map<String, NodeType> nodeTypes = new HashMap<>();
+    private long generation;
 
-    public ProxyNodeTypeManager(NodeTypeManager nodeTypeManager, NodeTypeManager nodeTypeManager1) {
+    public ProxyNodeTypeManager(NodeTypeManager nodeTypeManager, NodeTypeManager nodeTypeManager1, TypeCache cache) {
         this.nodeTypeManager = nodeTypeManager;
         this.nodeTypeManager1 = nodeTypeManager1;
+        this.cache = cache;
+        this.generation = cache.getGeneration();
     }
 
     @Override
     public NodeType getNodeType(String nodeTypeName) throws NoSuchNodeTypeException, RepositoryException {
-        return nodeTypeManager.getNodeType(nodeTypeName);
+        long current = cache.getGeneration();
+        if (generation != current) {
+            nodeTypes.clear();
+            generation = current;
+        }
+        NodeType nodeType = nodeTypes.get(nodeTypeName);
+        if (nodeType == null) {
+            nodeType = nodeTypeManager.getNodeType(nodeTypeName);
+            nodeTypes.put(nodeTypeName, nodeType);
+        }
+        return nodeType;
     }
 
     @Override
     public boolean hasNodeType(String name) throws RepositoryException {
-        return nodeTypeManager.hasNodeType(name);
+        return cache.hasNodeType(nodeTypeManager, name);
     }
 
     @Override
@@ -87,25 +111,41 @@ public class ProxyNodeTypeManager implements NodeTypeManager {
 
     @Override
     public NodeType registerNodeType(NodeTypeDefinition ntd, boolean allowUpdate) throws InvalidNodeTypeDefinitionException, NodeTypeExistsException, UnsupportedRepositoryOperationException, RepositoryException {
-        nodeTypeManager1.registerNodeType(ntd, allowUpdate);
-        return nodeTypeManager.registerNodeType(ntd, allowUpdate);
+        try {
+            nodeTypeManager1.registerNodeType(ntd, allowUpdate);
+            return nodeTypeManager.registerNodeType(ntd, allowUpdate);
+        } finally {
+            cache.invalidate();
+        }
     }
 
     @Override
     public NodeTypeIterator registerNodeTypes(NodeTypeDefinition[] ntds, boolean allowUpdate) throws InvalidNodeTypeDefinitionException, NodeTypeExistsException, UnsupportedRepositoryOperationException, RepositoryException {
-        nodeTypeManager1.registerNodeTypes(ntds, allowUpdate);
-        return nodeTypeManager.registerNodeTypes(ntds, allowUpdate);
+        try {
+            nodeTypeManager1.registerNodeTypes(ntds, allowUpdate);
+            return nodeTypeManager.registerNodeTypes(ntds, allowUpdate);
+        } finally {
+            cache.invalidate();
+        }
     }
 
     @Override
     public void unregisterNodeType(String name) throws UnsupportedRepositoryOperationException, NoSuchNodeTypeException, RepositoryException {
-        nodeTypeManager.unregisterNodeType(name);
-        nodeTypeManager1.unregisterNodeType(name);
+        try {
+            nodeTypeManager.unregisterNodeType(name);
+            nodeTypeManager1.unregisterNodeType(name);
+        } finally {
+            cache.invalidate();
+        }
     }
 
     @Override
     public void unregisterNodeTypes(String[] names) throws UnsupportedRepositoryOperationException, NoSuchNodeTypeException, RepositoryException {
-        nodeTypeManager.unregisterNodeTypes(names);
-        nodeTypeManager1.unregisterNodeTypes(names);
+        try {
+            nodeTypeManager.unregisterNodeTypes(names);
+            nodeTypeManager1.unregisterNodeTypes(names);
+        } finally {
+            cache.invalidate();
+        }
     }
 }
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.UnsupportedRepositoryOperationException;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventJournal;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.EventListenerIterator;
+import javax.jcr.observation.ObservationManager;
+
+import org.apache.jackrabbit.commons.iterator.EventIteratorAdapter;
+import org.apache.jackrabbit.commons.iterator.EventListenerIteratorAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers listeners with the JCR repository and the mount, each limited to
+ * the events of its own part of the tree. Events of the mount are collected
+ * for {@link ProxyRepository#eventDelay} milliseconds and delivered as one
+ * batch in which repeated events for the same item are coalesced. Pending
+ * mount events are always delivered before a newer JCR batch.
+ */
+public class ProxyObservationManager extends ProxyWrapper<ObservationManager> implements ObservationManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyObservationManager.class);
+
+    final ObservationManager delegate2;
+    private final Map<EventListener, Registration> registrations = new LinkedHashMap<>();
+
+    public ProxyObservationManager(ProxySession<?> mountSession, ObservationManager delegate, ObservationManager delegate2) {
+        super(mountSession, delegate);
+        this.delegate2 = delegate2;
+    }
+
+    @Override
+    public void addEventListener(EventListener listener, int eventTypes, String absPath, boolean isDeep, String[] uuid, String[] nodeTypeName, boolean noLocal) throws RepositoryException {
+        boolean mount = this.mountSession.isMount(absPath);
+        addEventListener(listener,
+                mount ? null : l -> delegate.addEventListener(l, eventTypes, absPath, isDeep, uuid, nodeTypeName, noLocal),
+                mount || absPath == null || isDeep && this.mountSession.isMountParent(absPath)
+                        ? l -> delegate2.addEventListener(l, eventTypes, absPath, isDeep, uuid, nodeTypeName, noLocal) : null);
+    }
+
+    /**
+     * Registers the listener with the JCR repository and the mount.
+     * @param listener the listener of the caller
+     * @param jcr registers the JCR side, or {@code null} if the listener does not observe the JCR repository
+     * @param mount registers the mount side, or {@code null} if the listener does not observe the mount
+     */
+    protected void addEventListener(EventListener listener, Registrar jcr, Registrar mount) throws RepositoryException {
+        Registration registration = new Registration(listener);
+        if (jcr != null) {
+            jcr.register(registration.jcrListener);
+        }
+        if (delegate2 != null && mount != null) {
+            try {
+                mount.register(registration.mountListener);
+            } catch (RepositoryException | RuntimeException ex) {
+                if (jcr != null) {
+                    delegate.removeEventListener(registration.jcrListener);
+                }
+                throw ex;
+            }
+        }
+        Registration previous;
+        synchronized (registrations) {
+            previous = registrations.put(listener, registration);
+        }
+        if (previous != null) {
+            previous.remove();
+        }
+    }
+
+    @Override
+    public void removeEventListener(EventListener listener) throws RepositoryException {
+        Registration registration;
+        synchronized (registrations) {
+            registration = registrations.remove(listener);
+        }
+        if (registration != null) {
+            registration.remove();
+        }
+    }
+
+    @Override
+    public EventListenerIterator getRegisteredEventListeners() throws RepositoryException {
+        synchronized (registrations) {
+            return new EventListenerIteratorAdapter(new ArrayList<>(registrations.keySet()));
+        }
+    }
+
+    @Override
+    public void setUserData(String userData) throws RepositoryException {
+        delegate.setUserData(userData);
+        if (delegate2 != null) {
+            delegate2.setUserData(userData);
+        }
+    }
+
+    @Override
+    public EventJournal getEventJournal() throws RepositoryException {
+        return delegate.getEventJournal();
+    }
+
+    @Override
+    public EventJournal getEventJournal(int eventTypes, String absPath, boolean isDeep, String[] uuid, String[] nodeTypeName) throws RepositoryException {
+        if (this.mountSession.isMount(absPath)) {
+            if (delegate2 == null) {
+                throw new UnsupportedRepositoryOperationException("The mount does not support observation");
+            }
+            return delegate2.getEventJournal(eventTypes, absPath, isDeep, uuid, nodeTypeName);
+        }
+        return delegate.getEventJournal(eventTypes, absPath, isDeep, uuid, nodeTypeName);
+    }
+
+    interface Registrar {
+        void register(EventListener listener) throws RepositoryException;
+    }
+
+    private final class Registration {
+        private final EventListener listener;
+        private final EventListener jcrListener = this::onJcrEvent;
+        private final EventListener mountListener = this::onMountEvent;
+        private final Map<String, Event> pending = new LinkedHashMap<>();
+        private ScheduledFuture<?> flush;
+
+        Registration(EventListener listener) {
+            this.listener = listener;
+        }
+
+        private synchronized void onJcrEvent(EventIterator events) {
+            List<Event> batch = new ArrayList<>();
+            while (events.hasNext()) {
+                Event event = events.nextEvent();
+                String path = getPath(event);
+                // content hidden by a mount is not visible through the proxy
+                if (path == null || !mountSession.isMount(path)) {
+                    batch.add(event);
+                }
+            }
+            flush();
+            deliver(batch);
+        }
+
+        private synchronized void onMountEvent(EventIterator events) {
+            while (events.hasNext()) {
+                Event event = events.nextEvent();
+                String path = getPath(event);
+                if (path != null && mountSession.isMount(path)) {
+                    String key = event.getType() + ":" + path;
+                    // keep the latest event of an item at the position it occurred last
+                    pending.remove(key);
+                    pending.put(key, event);
+                }
+            }
+            long delay = mountSession.repository.eventDelay;
+            ScheduledExecutorService scheduler = delay > 0 ? mountSession.repository.getEventScheduler() : null;
+            if (scheduler == null) {
+                flush();
+            } else if (flush == null && !pending.isEmpty()) {
+                try {
+                    flush = scheduler.schedule(this::scheduledFlush, delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException ex) {
+                    // the proxy was closed in the meantime
+                    flush();
+                }
+            }
+        }
+
+        private synchronized void scheduledFlush() {
+            flush = null;
+            flush();
+        }
+
+        private void flush() {
+            if (flush != null) {
+                flush.cancel(false);
+                flush = null;
+            }
+            if (!pending.isEmpty()) {
+                List<Event> batch = new ArrayList<>(pending.values());
+                pending.clear();
+                deliver(batch);
+            }
+        }
+
+        private void deliver(List<Event> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                listener.onEvent(new EventIteratorAdapter(batch));
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Event listener {} failed to process events", listener, ex);
+            }
+        }
+
+        private void remove() throws RepositoryException {
+            synchronized (this) {
+                if (flush != null) {
+                    flush.cancel(false);
+                    flush = null;
+                }
+                pending.clear();
+            }
+            try {
+                delegate.removeEventListener(jcrListener);
+            } finally {
+                if (delegate2 != null) {
+                    delegate2.removeEventListener(mountListener);
+                }
+            }
+        }
+
+        private String getPath(Event event) {
+            try {
+                return event.getPath();
+            } catch (RepositoryException ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -40,50 +40,62 @@ public class ProxyProperty extends ProxyItem<Property> implements Property {
     }
 
     public void setValue(Value value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(Value[] values) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(values);
     }
 
     public void setValue(String value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(String[] values) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(values);
     }
 
     public void setValue(InputStream value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(Binary value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(long value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(double value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(BigDecimal value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(Calendar value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(boolean value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
     public void setValue(Node value) throws ValueFormatException, VersionException, LockException, ConstraintViolationException, RepositoryException {
+        this.mountSession.markModified(getPath());
         delegate.setValue(value);
     }
 
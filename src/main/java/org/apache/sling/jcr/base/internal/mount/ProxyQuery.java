@@ -18,14 +18,11 @@
  */
 package org.apache.sling.jcr.base.internal.mount;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.jcr.ItemExistsException;
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
-import javax.jcr.NodeIterator;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.RepositoryException;
 import javax.jcr.UnsupportedRepositoryOperationException;
@@ -35,162 +32,119 @@ import javax.jcr.nodetype.ConstraintViolationException;
 import javax.jcr.query.InvalidQueryException;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryResult;
-import javax.jcr.query.Row;
-import javax.jcr.query.RowIterator;
 import javax.jcr.version.VersionException;
 
+import org.apache.sling.jcr.base.internal.mount.ProxyMetrics.Operation;
+
 public class ProxyQuery extends ProxyWrapper<Query> implements Query {
     private final Query delegate2;
+    private final boolean executeDelegate;
+    private long limit = -1;
+    private long offset;
 
     public ProxyQuery(ProxySession<?> mountSession, Query delegate, Query delegate2) {
+        this(mountSession, delegate, delegate2, true);
+    }
+
+    public ProxyQuery(ProxySession<?> mountSession, Query delegate, Query delegate2, boolean executeDelegate) {
         super(mountSession, delegate);
         this.delegate2 = delegate2;
+        this.executeDelegate = executeDelegate || delegate2 == null;
     }
 
     public QueryResult execute() throws InvalidQueryException, RepositoryException {
-        final QueryResult result1 = delegate.execute();
-        QueryResult result2temp = null;
-        if (delegate2 != null) {
-            result2temp = delegate2.execute();
+        if (delegate2 == null) {
+            return this.mountSession.wrap(executeJcr());
         }
-        final QueryResult result2 = result2temp;
-
-        return this.mountSession.wrap(new QueryResult() {
-            @Override
-            public String[] getColumnNames() throws RepositoryException {
-            	return result1.getColumnNames();
+        if (!executeDelegate) {
+            return this.mountSession.wrap(executeMount());
+        }
+        MountCircuitBreaker breaker = this.mountSession.repository.breaker;
+        if (breaker.isOpen()) {
+            // the mount is unavailable, only the JCR repository is queried
+            if (limit >= 0) {
+                delegate.setLimit(limit);
             }
-
-            @Override
-            public RowIterator getRows() throws RepositoryException {
-            	final RowIterator i1 = result1.getRows();
-            	RowIterator i2 = null;
-            	if (result2 != null) {
-                    i2 = result2.getRows();
-                }
-            	if ( i2 == null || !i2.hasNext() ) {
-            		return i1;
-            	}
-            	if ( !i1.hasNext() ) {
-            		return i2;
-            	}
-                final List<RowIterator> list = new ArrayList<>();
-                list.add(i1);
-                list.add(i2);
-                @SuppressWarnings({ "unchecked", "rawtypes" })
-				final Iterator<Row> iter = new ChainedIterator(list.iterator());
-                return new RowIterator() {
-					private volatile long position = 0;
-					@Override
-					public Object next() {
-					    position++;
-					    return iter.next();
-					}
-
-					@Override
-					public boolean hasNext() {
-						return iter.hasNext();
-					}
-
-					@Override
-					public void skip(long skipNum) {
-						while (skipNum-- > 0) {
-						    next();
-						}
-					}
-
-					@Override
-					public long getSize() {
-						return -1;
-					}
-
-					@Override
-					public long getPosition() {
-						return position;
-					}
-
-					@Override
-					public Row nextRow() {
-						position++;
-						return iter.next();
-					}
-				};
+            delegate.setOffset(offset);
+            return this.mountSession.wrap(executeJcr());
+        }
+        // both queries need to return the rows up to the end of the requested page,
+        // the offset and limit are then applied to the combined result
+        if (limit >= 0) {
+            delegate.setLimit(offset + limit);
+            delegate2.setLimit(offset + limit);
+        }
+        // without an ordering the mount rows are only read if the JCR rows do not fill the page
+        final QueryOrdering ordering = getOrdering();
+        final QueryResult result1;
+        final QueryResult result2;
+        MountExecutor executor = this.mountSession.repository.getQueryExecutor();
+        if (executor != null) {
+            final long start = ProxyMetrics.start();
+            Future<QueryResult> future = this.mountSession.submitMountCall(executor, "Query", delegate2::execute);
+            try {
+                result1 = executeJcr();
+            } catch (RepositoryException | RuntimeException ex) {
+                future.cancel(true);
+                throw ex;
             }
-
-            @Override
-            public NodeIterator getNodes() throws RepositoryException {
-            	final NodeIterator i1 = result1.getNodes();
-                NodeIterator i2 = null;
-                if (result2 != null) {
-                    i2 = result2.getNodes();
-                }
-            	if ( i2 == null || !i2.hasNext() ) {
-            		return i1;
-            	}
-            	if ( !i1.hasNext() ) {
-            		return i2;
-            	}
-                final List<NodeIterator> list = new ArrayList<>();
-                list.add(i1);
-                list.add(i2);
-                @SuppressWarnings({ "unchecked", "rawtypes" })
-				final Iterator<Node> iter = new ChainedIterator(list.iterator());
-                return new NodeIterator() {
-					private volatile long position = 0;
-					@Override
-					public Object next() {
-					    position++;
-					    return iter.next();
-					}
-
-					@Override
-					public boolean hasNext() {
-						return iter.hasNext();
-					}
-
-					@Override
-					public void skip(long skipNum) {
-						while (skipNum-- > 0) {
-						    next();
-						}
-					}
-
-					@Override
-					public long getSize() {
-						return -1;
-					}
-
-					@Override
-					public long getPosition() {
-						return position;
-					}
-
-					@Override
-					public Node nextNode() {
-					    position++;
-					    return iter.next();
-					}
-				};
+            long timeout = this.mountSession.repository.queryTimeout;
+            try {
+                result2 = MountExecutor.await(future, timeout > 0 ? timeout : this.mountSession.repository.mountTimeout, "Query");
+            } catch (RepositoryException | RuntimeException ex) {
+                breaker.record(ex);
+                throw ex;
+            } finally {
+                this.mountSession.repository.metrics.record(true, Operation.QUERY, start);
             }
+            breaker.success();
+        } else {
+            result1 = executeJcr();
+            result2 = executeMount();
+        }
 
-            @Override
-            public String[] getSelectorNames() throws RepositoryException {
-                return result1.getSelectorNames();
-            }
-        });
+        return this.mountSession.wrap(new MergedQueryResult(result1, result2, ordering, offset, limit));
+    }
+
+    private QueryResult executeJcr() throws RepositoryException {
+        long start = ProxyMetrics.start();
+        try {
+            return delegate.execute();
+        } finally {
+            this.mountSession.repository.metrics.record(false, Operation.QUERY, start);
+        }
+    }
+
+    private QueryResult executeMount() throws RepositoryException {
+        long start = ProxyMetrics.start();
+        try {
+            return this.mountSession.mountCall("Query", delegate2::execute);
+        } finally {
+            this.mountSession.repository.metrics.record(true, Operation.QUERY, start);
+        }
+    }
+
+    protected QueryOrdering getOrdering() throws RepositoryException {
+        return QueryOrdering.parse(delegate.getStatement(), delegate.getLanguage());
     }
 
     public void setLimit(long limit) {
-        delegate.setLimit(limit);
-        if (delegate2 != null) {
+        if (delegate2 == null) {
+            delegate.setLimit(limit);
+        } else if (!executeDelegate) {
             delegate2.setLimit(limit);
+        } else {
+            this.limit = limit;
         }
     }
 
     public void setOffset(long offset) {
-        delegate.setOffset(offset);
-        if (delegate2 != null) {
-            delegate2.setOffset(2);
+        if (delegate2 == null) {
+            delegate.setOffset(offset);
+        } else if (!executeDelegate) {
+            delegate2.setOffset(offset);
+        } else {
+            this.offset = offset;
         }
     }
 
@@ -27,6 +27,7 @@ import javax.jcr.query.qom.QueryObjectModelFactory;
 
 public class ProxyQueryManager extends ProxyWrapper<QueryManager> implements QueryManager {
     private final QueryManager delegate2;
+    private QueryObjectModelFactory qomFactory;
 
     public ProxyQueryManager(ProxySession<?> mountSession, QueryManager delegate, QueryManager delegate2) {
         super(mountSession, delegate);
@@ -35,12 +36,18 @@ public class ProxyQueryManager extends ProxyWrapper<QueryManager> implements Que
 
     @Override
     public Query createQuery(String statement, String language) throws InvalidQueryException, RepositoryException {
-        return new ProxyQuery(this.mountSession, delegate.createQuery(statement, language), delegate2.createQuery(statement, language));
+        String scope = QueryScope.getPath(statement, language);
+        return new ProxyQuery(this.mountSession, delegate.createQuery(statement, language),
+                this.mountSession.queryMount(scope) ? delegate2.createQuery(statement, language) : null,
+                this.mountSession.queryJcr(scope));
     }
 
     @Override
     public QueryObjectModelFactory getQOMFactory() {
-        return new ProxyQueryObjectModelFactory(this.mountSession, delegate.getQOMFactory(), delegate2.getQOMFactory());
+        if (qomFactory == null) {
+            qomFactory = new ProxyQueryObjectModelFactory(this.mountSession, delegate.getQOMFactory(), delegate2.getQOMFactory());
+        }
+        return qomFactory;
     }
 
     @Override
@@ -29,6 +29,15 @@ public class ProxyQueryObjectModel extends ProxyQuery implements QueryObjectMode
         super(mountSession, delegate, delegate2);
     }
 
+    public ProxyQueryObjectModel(ProxySession<?> mountSession, QueryObjectModel delegate, QueryObjectModel delegate2, boolean executeDelegate) {
+        super(mountSession, delegate, delegate2, executeDelegate);
+    }
+
+    @Override
+    protected QueryOrdering getOrdering() {
+        return QueryOrdering.from(getOrderings());
+    }
+
     public Source getSource() {
         return ((QueryObjectModel) delegate).getSource();
     }
@@ -64,13 +64,10 @@ public class ProxyQueryObjectModelFactory extends ProxyWrapper<QueryObjectModelF
     }
 
     public QueryObjectModel createQuery(Source source, Constraint constraint, Ordering[] orderings, Column[] columns) throws InvalidQueryException, RepositoryException {
-        if (delegate2 != null) {
-            return new ProxyQueryObjectModel(this.mountSession, delegate.createQuery(source, constraint, orderings, columns),
-                    delegate2.createQuery(source, constraint, orderings, columns));
-        } else {
-            return new ProxyQueryObjectModel(this.mountSession, delegate.createQuery(source, constraint, orderings, columns),
-                    null);
-        }
+        String scope = QueryScope.getPath(source, constraint);
+        return new ProxyQueryObjectModel(this.mountSession, delegate.createQuery(source, constraint, orderings, columns),
+                delegate2 != null && this.mountSession.queryMount(scope) ? delegate2.createQuery(source, constraint, orderings, columns) : null,
+                this.mountSession.queryJcr(scope));
     }
 
     public Selector selector(String nodeTypeName, String selectorName) throws InvalidQueryException, RepositoryException {
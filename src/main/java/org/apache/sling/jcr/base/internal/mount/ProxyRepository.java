@@ -18,10 +18,15 @@
  */
 package org.apache.sling.jcr.base.internal.mount;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.jcr.Credentials;
 import javax.jcr.LoginException;
@@ -34,48 +39,356 @@ import javax.jcr.Value;
 
 import org.apache.jackrabbit.api.JackrabbitRepository;
 import org.apache.jackrabbit.api.JackrabbitSession;
+import org.apache.jackrabbit.value.LongValue;
 import org.apache.sling.jcr.base.spi.RepositoryMount;
+import org.osgi.util.converter.Converters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ProxyRepository<T extends Repository> implements Repository {
+    /** Prefix of the descriptors exposing the proxy metrics. */
+    public static final String METRICS_DESCRIPTOR_PREFIX = "org.apache.sling.jcr.base.mount.";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyRepository.class);
+
+    /** How long the caches stay disabled after a failed login of the system session. */
+    static final long SYSTEM_LOGIN_RETRY_MILLIS = 10000;
+
+    /**
+     * Logs in the session the proxy uses for itself, e.g. to observe the
+     * repository and the mount for its caches.
+     */
+    public interface SystemLogin {
+        /**
+         * Returns a session which can read the whole repository, or
+         * {@code null} if none can be logged in yet.
+         */
+        Session login() throws RepositoryException;
+    }
+
     public final T jcr;
     final T mount;
-    final Set<String> mountPoints;
+    /**
+     * The current routing table, replaced as a whole when the mount points
+     * change. Sessions compare the instance they route with to this one to
+     * find out.
+     */
+    volatile MountTable mountTable;
+    final Map<String, Object> properties;
+    final IdentifierRouter identifierRouter;
+    final int queryConcurrency;
+    final long queryTimeout;
+    final long eventDelay;
+    final int transferBatchSize;
+    final int prefetchSize;
+    final boolean deferAuthorizables;
+    final int purgeBatchSize;
+    final MountReadCache readCache;
+    final LongAdder negativeLookupHits = new LongAdder();
+    final LongAdder negativeLookupMisses = new LongAdder();
+    final LongAdder authorizableMirrorFailures = new LongAdder();
+    final long mountTimeout;
+    final MountCircuitBreaker breaker;
+    final ProxyMetrics metrics = new ProxyMetrics();
+    final TypeCache typeCache = new TypeCache();
+    private volatile MountExecutor executor;
+    private volatile MountExecutor callExecutor;
+    private volatile ScheduledExecutorService eventScheduler;
+    private volatile boolean closed;
+    private volatile SystemLogin systemLogin;
+    private volatile ProxySession<?> systemSession;
+    /** The time before which no login of the system session is attempted after a failed one. */
+    volatile long systemLoginRetry;
+    private boolean systemSessionRequested;
+    private final Object systemLock = new Object();
 
     public ProxyRepository(T jcr, T mount, Set<String> mountPoint) {
+        this(jcr, mount, mountPoint, Collections.<String, Object>emptyMap());
+    }
+
+    public ProxyRepository(T jcr, T mount, Set<String> mountPoint, Map<String, Object> properties) {
         this.jcr = jcr;
         this.mount = mount;
-        this.mountPoints = new HashSet<>(mountPoint);
+        this.mountTable = new MountTable(mountPoint);
+        this.properties = properties;
+
+        String[] prefixes = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_IDENTIFIER_PREFIXES_KEY)).to(String[].class);
+        this.identifierRouter = prefixes.length > 0 ? new PrefixIdentifierRouter(prefixes) : new BloomFilterIdentifierRouter(1 << 20);
+        this.queryConcurrency = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_QUERY_CONCURRENCY_KEY)).defaultValue(0).to(int.class);
+        this.queryTimeout = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_QUERY_TIMEOUT_KEY)).defaultValue(0L).to(long.class);
+        this.eventDelay = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_EVENT_DELAY_KEY)).defaultValue(0L).to(long.class);
+        this.transferBatchSize = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_TRANSFER_BATCH_SIZE_KEY)).defaultValue(1000).to(int.class);
+        this.purgeBatchSize = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_PURGE_BATCH_SIZE_KEY)).defaultValue(0).to(int.class);
+        this.deferAuthorizables = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_DEFER_AUTHORIZABLES_KEY)).defaultValue(false).to(boolean.class);
+        this.prefetchSize = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_PREFETCH_SIZE_KEY)).defaultValue(0).to(int.class);
+        int cacheSize = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_CACHE_SIZE_KEY)).defaultValue(0).to(int.class);
+        long cacheTtl = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_CACHE_TTL_KEY)).defaultValue(60000L).to(long.class);
+        this.readCache = cacheSize > 0 ? new MountReadCache(cacheSize, cacheTtl) : null;
+        this.mountTimeout = Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_TIMEOUT_KEY)).defaultValue(0L).to(long.class);
+        this.breaker = new MountCircuitBreaker(
+                Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_FAILURE_THRESHOLD_KEY)).defaultValue(0).to(int.class),
+                Converters.standardConverter().convert(properties.get(RepositoryMount.MOUNT_UNAVAILABLE_DURATION_KEY)).defaultValue(30000L).to(long.class));
     }
 
+    MountExecutor getQueryExecutor() {
+        if (queryConcurrency <= 0 || closed) {
+            return null;
+        }
+        MountExecutor result = executor;
+        if (result == null) {
+            synchronized (this) {
+                result = executor;
+                if (result == null && !closed) {
+                    executor = result = new MountExecutor(queryConcurrency);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the executor for mount calls with a timeout, or {@code null}
+     * once closed in which case the calls run on the calling thread.
+     */
+    MountExecutor getCallExecutor() {
+        if (closed) {
+            return null;
+        }
+        MountExecutor result = callExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = callExecutor;
+                if (result == null && !closed) {
+                    // calls are rejected rather than run unbounded once all threads wait for a stalled mount
+                    callExecutor = result = new MountExecutor(64, false);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the scheduler for delayed mount events, or {@code null} once
+     * closed in which case the events are delivered right away.
+     */
+    ScheduledExecutorService getEventScheduler() {
+        if (closed) {
+            return null;
+        }
+        ScheduledExecutorService result = eventScheduler;
+        if (result == null) {
+            synchronized (this) {
+                result = eventScheduler;
+                if (result == null && !closed) {
+                    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                        Thread thread = new Thread(runnable, "sling-jcr-mount-events");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+                    scheduler.allowCoreThreadTimeOut(true);
+                    scheduler.setRemoveOnCancelPolicy(true);
+                    eventScheduler = result = scheduler;
+                }
+            }
+        }
+        return result;
+    }
+
+    public void setSystemLogin(SystemLogin systemLogin) {
+        this.systemLogin = systemLogin;
+    }
+
+    /**
+     * Returns the session of the proxy itself, logged in on first use, or
+     * {@code null} if it is not available.
+     */
+    ProxySession<?> getSystemSession() {
+        if (systemSession != null || closed || systemLogin == null || System.currentTimeMillis() < systemLoginRetry) {
+            return systemSession;
+        }
+        synchronized (systemLock) {
+            SystemLogin login = systemLogin;
+            if (systemSession != null || systemSessionRequested || login == null) {
+                // the login itself opens sessions which end up here again
+                return systemSession;
+            }
+            systemSessionRequested = true;
+            ProxySession<?> session = null;
+            try {
+                Session result = login.login();
+                if (result == null) {
+                    systemLoginRetry = System.currentTimeMillis() + SYSTEM_LOGIN_RETRY_MILLIS;
+                    return null;
+                }
+                session = (ProxySession<?>) wrap(result);
+                if (readCache != null && !readCache.observe(session.mount)) {
+                    LOGGER.info("Unable to observe the mount, existence checks are not cached");
+                }
+                if (!typeCache.observe(session.jcr)) {
+                    LOGGER.info("Unable to observe node type changes, node types and namespaces are not cached");
+                }
+            } catch (RepositoryException | RuntimeException ex) {
+                LOGGER.warn("Unable to log in the session of the mount proxy, existence checks and node types are not cached for {}ms",
+                        SYSTEM_LOGIN_RETRY_MILLIS, ex);
+                if (session != null) {
+                    session.logout();
+                }
+                systemLoginRetry = System.currentTimeMillis() + SYSTEM_LOGIN_RETRY_MILLIS;
+                return null;
+            } finally {
+                systemSessionRequested = false;
+            }
+            systemSession = session;
+            if (closed) {
+                // closed while logging in
+                systemSession = null;
+                session.logout();
+            }
+            return systemSession;
+        }
+    }
+
+    /**
+     * Returns the mount read cache if there is one and it is kept up to date
+     * by observing the mount, otherwise {@code null}.
+     */
+    MountReadCache getReadCache() {
+        if (readCache == null || getSystemSession() == null) {
+            return null;
+        }
+        return readCache.isObserved() ? readCache : null;
+    }
+
+    /**
+     * Returns the node type and namespace cache, which keeps snapshots only
+     * while it is observed through the session of the proxy.
+     */
+    TypeCache getTypeCache() {
+        getSystemSession();
+        return typeCache;
+    }
+
+    /**
+     * Shuts down the threads of this proxy once it is replaced. Sessions still
+     * open keep working, but call the mount on their own thread.
+     */
+    public void close() {
+        MountExecutor queries;
+        MountExecutor calls;
+        ScheduledExecutorService events;
+        synchronized (this) {
+            closed = true;
+            queries = executor;
+            calls = callExecutor;
+            events = eventScheduler;
+        }
+        if (queries != null) {
+            queries.shutdown();
+        }
+        if (calls != null) {
+            calls.shutdown();
+        }
+        if (events != null) {
+            events.shutdown();
+        }
+        ProxySession<?> session = systemSession;
+        systemSession = null;
+        if (session != null) {
+            session.logout();
+        }
+        if (readCache != null) {
+            readCache.clear();
+        }
+        typeCache.clear();
+    }
+
+    public T getMount() {
+        return mount;
+    }
+
+    public Set<String> getMountPoints() {
+        return mountTable.mountPoints;
+    }
+
+    /**
+     * Changes the mount points. New sessions use them right away, open
+     * sessions switch to them at their next save or refresh without pending
+     * changes. Event listeners keep the registrations made with the mount
+     * points at the time they were added.
+     */
+    public void setMountPoints(Set<String> mountPoints) {
+        this.mountTable = new MountTable(mountPoints);
+    }
+
+    public long getNegativeLookupHits() {
+        return negativeLookupHits.sum();
+    }
+
+    public long getNegativeLookupMisses() {
+        return negativeLookupMisses.sum();
+    }
+
+    public Map<String, Object> getProperties() {
+        return Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Returns a snapshot of the routing and latency metrics together with the
+     * negative lookup cache counters, the number of authorizables that could
+     * not be created on the mount and whether the mount is available.
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> result = metrics.snapshot();
+        result.put("negativeLookup.hits", getNegativeLookupHits());
+        result.put("negativeLookup.misses", getNegativeLookupMisses());
+        result.put("authorizables.mirrorFailures", authorizableMirrorFailures.sum());
+        result.put("available", breaker.isOpen() ? 0L : 1L);
+        return result;
+    }
+
+    private Long getMetric(String key) {
+        return key != null && key.startsWith(METRICS_DESCRIPTOR_PREFIX) ? getMetrics().get(key.substring(METRICS_DESCRIPTOR_PREFIX.length())) : null;
+    }
 
     @Override
     public String[] getDescriptorKeys() {
-        return jcr.getDescriptorKeys();
+        String[] keys = jcr.getDescriptorKeys();
+        Set<String> metricKeys = getMetrics().keySet();
+        String[] result = Arrays.copyOf(keys, keys.length + metricKeys.size());
+        int i = keys.length;
+        for (String key : metricKeys) {
+            result[i++] = METRICS_DESCRIPTOR_PREFIX + key;
+        }
+        return result;
     }
 
     @Override
     public boolean isStandardDescriptor(String key) {
-        return jcr.isStandardDescriptor(key);
+        return getMetric(key) == null && jcr.isStandardDescriptor(key);
     }
 
     @Override
     public boolean isSingleValueDescriptor(String key) {
-        return jcr.isSingleValueDescriptor(key);
+        return getMetric(key) != null || jcr.isSingleValueDescriptor(key);
     }
 
     @Override
     public Value getDescriptorValue(String key) {
-        return jcr.getDescriptorValue(key);
+        Long metric = getMetric(key);
+        return metric != null ? new LongValue(metric) : jcr.getDescriptorValue(key);
     }
 
     @Override
     public Value[] getDescriptorValues(String key) {
-        return jcr.getDescriptorValues(key);
+        Long metric = getMetric(key);
+        return metric != null ? new Value[] {new LongValue(metric)} : jcr.getDescriptorValues(key);
     }
 
     @Override
     public String getDescriptor(String key) {
-        return jcr.getDescriptor(key);
+        Long metric = getMetric(key);
+        return metric != null ? metric.toString() : jcr.getDescriptor(key);
     }
 
     @Override
@@ -92,8 +405,8 @@ public class ProxyRepository<T extends Repository> implements Repository {
             mountSession = mount.login(credentials, workspaceName);
         }
         return jcrSession instanceof JackrabbitSession ?
-                new ProxyJackrabbitSession(this, (JackrabbitSession) jcrSession, mountSession, this.mountPoints) :
-                new ProxySession<>(this, jcrSession, mountSession, this.mountPoints);
+                new ProxyJackrabbitSession(this, (JackrabbitSession) jcrSession, mountSession, getMountPoints()) :
+                new ProxySession<>(this, jcrSession, mountSession, getMountPoints());
     }
 
     @Override
@@ -116,18 +429,25 @@ public class ProxyRepository<T extends Repository> implements Repository {
             return session;
         }
 
-        Map<String, Object> attributes = new HashMap<>();
-        attributes.put(RepositoryMount.PARENT_SESSION_KEY, session);
-        Session mountSession = ((JackrabbitRepository) mount).login(new SimpleCredentials(session.getUserID(), new char[0]),session.getWorkspace().getName(), attributes );
+        Credentials credentials = new SimpleCredentials(session.getUserID(), new char[0]);
+        Session mountSession;
+        if (mount instanceof JackrabbitRepository) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put(RepositoryMount.PARENT_SESSION_KEY, session);
+            mountSession = ((JackrabbitRepository) mount).login(credentials, session.getWorkspace().getName(), attributes);
+        }
+        else {
+            mountSession = mount.login(credentials, session.getWorkspace().getName());
+        }
 
         return session instanceof JackrabbitSession ?
-                new ProxyJackrabbitSession(this, (JackrabbitSession) session, mountSession, this.mountPoints) :
-                new ProxySession<>(this, session, mountSession, this.mountPoints);
+                new ProxyJackrabbitSession(this, (JackrabbitSession) session, mountSession, getMountPoints()) :
+                new ProxySession<>(this, session, mountSession, getMountPoints());
     }
 
     Session impersonate(Credentials credentials, Session jcr, Session mount) throws RepositoryException {
         return jcr instanceof JackrabbitSession ?
-                new ProxyJackrabbitSession(this, (JackrabbitSession) jcr.impersonate(credentials), mount.impersonate(credentials), this.mountPoints) :
-                new ProxySession<>(this, jcr.impersonate(credentials), mount.impersonate(credentials), this.mountPoints);
+                new ProxyJackrabbitSession(this, (JackrabbitSession) jcr.impersonate(credentials), mount.impersonate(credentials), getMountPoints()) :
+                new ProxySession<>(this, jcr.impersonate(credentials), mount.impersonate(credentials), getMountPoints());
     }
 }
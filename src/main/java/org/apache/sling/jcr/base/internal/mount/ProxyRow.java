@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.query.Row;
+
+/**
+ * Wraps a row of a query result. Only the nodes are wrapped, when they are
+ * requested; values, paths and scores are passed through.
+ */
+public class ProxyRow extends ProxyWrapper<Row> implements Row {
+    public ProxyRow(ProxySession<?> mountSession, Row delegate) {
+        super(mountSession, delegate);
+    }
+
+    public Value[] getValues() throws RepositoryException {
+        return delegate.getValues();
+    }
+
+    public Value getValue(String columnName) throws ItemNotFoundException, RepositoryException {
+        return delegate.getValue(columnName);
+    }
+
+    public Node getNode() throws RepositoryException {
+        return this.mountSession.wrap(delegate.getNode());
+    }
+
+    public Node getNode(String selectorName) throws RepositoryException {
+        return this.mountSession.wrap(delegate.getNode(selectorName));
+    }
+
+    public String getPath() throws RepositoryException {
+        return delegate.getPath();
+    }
+
+    public String getPath(String selectorName) throws RepositoryException {
+        return delegate.getPath(selectorName);
+    }
+
+    public double getScore() throws RepositoryException {
+        return delegate.getScore();
+    }
+
+    public double getScore(String selectorName) throws RepositoryException {
+        return delegate.getScore(selectorName);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+
+public class ProxyRowIterator extends ProxyWrapper<RowIterator> implements RowIterator {
+    public ProxyRowIterator(ProxySession<?> mountSession, RowIterator delegate) {
+        super(mountSession, delegate);
+    }
+
+    public Row nextRow() {
+        return new ProxyRow(this.mountSession, delegate.nextRow());
+    }
+
+    public Object next() {
+        return nextRow();
+    }
+
+    public boolean hasNext() {
+        return delegate.hasNext();
+    }
+
+    public void skip(long skipNum) {
+        delegate.skip(skipNum);
+    }
+
+    public long getSize() {
+        return delegate.getSize();
+    }
+
+    public long getPosition() {
+        return delegate.getPosition();
+    }
+
+    public void remove() {
+        delegate.remove();
+    }
+}
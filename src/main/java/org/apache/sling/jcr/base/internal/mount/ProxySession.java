@@ -26,8 +26,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.jcr.AccessDeniedException;
 import javax.jcr.Credentials;
@@ -48,7 +55,6 @@ import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.UnsupportedRepositoryOperationException;
-import javax.jcr.Value;
 import javax.jcr.ValueFactory;
 import javax.jcr.Workspace;
 import javax.jcr.lock.Lock;
@@ -56,41 +62,337 @@ import javax.jcr.lock.LockException;
 import javax.jcr.nodetype.ConstraintViolationException;
 import javax.jcr.nodetype.NoSuchNodeTypeException;
 import javax.jcr.query.QueryResult;
-import javax.jcr.query.Row;
 import javax.jcr.query.RowIterator;
 import javax.jcr.retention.RetentionManager;
 import javax.jcr.security.AccessControlManager;
 import javax.jcr.version.VersionException;
 
+import org.apache.jackrabbit.api.JackrabbitSession;
 import org.apache.jackrabbit.api.security.JackrabbitAccessControlManager;
 import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.apache.jackrabbit.commons.xml.SerializingContentHandler;
 import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.apache.sling.jcr.base.internal.mount.ProxyMetrics.Operation;
+import org.apache.sling.jcr.base.spi.BatchReader;
+import org.apache.sling.jcr.base.spi.BatchRemover;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
 public class ProxySession<T extends Session> implements Session {
-    private final ProxyRepository repository;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxySession.class);
+
+    final ProxyRepository repository;
     public final T jcr;
     protected final Session mount;
-    private final Set<String> mountPoints;
+    private MountTable mountTable;
+
+    private boolean jcrModified;
+    private boolean mountModified;
+    private Set<String> mountWrites = new HashSet<>();
+    private MountReadCache.Principals principals;
+    private boolean principalsResolved;
+    private final NegativeLookupCache missing;
+    private boolean lookupCacheSuspended;
+    /** Counted down once the call on the mount that timed out last has completed. */
+    private volatile CountDownLatch stalled;
+    private Workspace workspace;
+    private AccessControlManager accessControlManager;
 
     public ProxySession(ProxyRepository repository, T jcr, Session mount, Set<String> mountPoints) {
         this.repository = repository;
         this.jcr = jcr;
         this.mount = mount;
-        this.mountPoints = mountPoints;
+        MountTable current = repository.mountTable;
+        this.mountTable = current.mountPoints.equals(mountPoints) ? current : new MountTable(mountPoints);
+        this.missing = new NegativeLookupCache(1000, 1000, repository.negativeLookupHits, repository.negativeLookupMisses);
     }
 
     boolean isMount(String path) {
-        return path != null && (mountPoints.contains(path) || mountPoints.stream().anyMatch(mountPoint -> path.startsWith(mountPoint + "/")));
+        return mountTable.isMount(path);
+    }
+
+    int getMountDepth(String path) {
+        return mountTable.getMountDepth(path);
     }
 
     boolean isMountParent(String path) {
-        return mountPoints.stream().anyMatch(mountPoint -> mountPoint.startsWith((path + "/").replace("//", "/")));
+        return mountTable.isMountParent(path);
     }
 
     boolean isMountDirectParent(String path) {
-        return mountPoints.stream().anyMatch(mountPoint -> PathUtils.getParentPath(mountPoint).equals(path));
+        return mountTable.isMountDirectParent(path);
+    }
+
+    /**
+     * Returns the mount points that are direct children of the given path.
+     */
+    List<String> getMountPoints(String parent) {
+        return mountTable.getMountPoints(parent);
+    }
+
+    boolean queryJcr(String scope) {
+        return scope == null || !isMount(scope);
+    }
+
+    boolean queryMount(String scope) {
+        if (this.repository.breaker.isOpen()) {
+            return scope != null && isMount(scope);
+        }
+        return scope == null || isMount(scope) || isMountParent(scope);
+    }
+
+    /**
+     * Calls the mount, limited to {@link ProxyRepository#mountTimeout} if set,
+     * and records the outcome with the circuit breaker. While the breaker is
+     * open the mount is not called at all. A call that timed out keeps running,
+     * until it completes further calls of this session are refused.
+     */
+    <V> V mountCall(String operation, MountExecutor.Call<V> call) throws RepositoryException {
+        MountCircuitBreaker breaker = this.repository.breaker;
+        if (breaker.isOpen()) {
+            throw new RepositoryException("Mount is unavailable, " + operation + " refused");
+        }
+        checkStalled(operation);
+        try {
+            V result;
+            long timeout = this.repository.mountTimeout;
+            MountExecutor executor = timeout > 0 ? this.repository.getCallExecutor() : null;
+            if (executor != null) {
+                CountDownLatch finished = new CountDownLatch(1);
+                Future<V> future;
+                try {
+                    future = executor.submit(() -> {
+                        try {
+                            return call.call();
+                        } finally {
+                            finished.countDown();
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    throw new RepositoryException("Too many pending calls on mount, " + operation + " refused", ex);
+                }
+                try {
+                    result = MountExecutor.await(future, timeout, operation);
+                } finally {
+                    if (finished.getCount() > 0) {
+                        this.stalled = finished;
+                    }
+                }
+            } else {
+                result = call.call();
+            }
+            breaker.success();
+            return result;
+        } catch (RepositoryException | RuntimeException ex) {
+            breaker.record(ex);
+            throw ex;
+        }
+    }
+
+    private void checkStalled(String operation) throws RepositoryException {
+        CountDownLatch pending = this.stalled;
+        if (pending != null) {
+            if (pending.getCount() > 0) {
+                // the mount session is not used concurrently to a call that timed out
+                throw new RepositoryException("A timed out call on the mount is still running, " + operation + " refused");
+            }
+            this.stalled = null;
+        }
+    }
+
+    /**
+     * Starts a call on the mount on the given executor, to run concurrently to
+     * a call on the JCR repository. Like
+     * {@link #mountCall(String, MountExecutor.Call)} it is refused while a
+     * call that timed out is still running, and further calls on the mount
+     * are refused until it has completed, e.g. if it times out. The returned
+     * future must be awaited or cancelled.
+     */
+    <V> Future<V> submitMountCall(MountExecutor executor, String operation, MountExecutor.Call<V> call) throws RepositoryException {
+        checkStalled(operation);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean started = new AtomicBoolean();
+        FutureTask<V> task = new FutureTask<V>(() -> {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return call.call();
+            } finally {
+                finished.countDown();
+            }
+        }) {
+            @Override
+            protected void done() {
+                // a call cancelled before it started never runs
+                if (started.compareAndSet(false, true)) {
+                    finished.countDown();
+                }
+            }
+        };
+        this.stalled = finished;
+        try {
+            executor.submit(Executors.callable(task));
+        } catch (RejectedExecutionException ex) {
+            this.stalled = null;
+            throw new RepositoryException("Too many pending calls on mount, " + operation + " refused", ex);
+        }
+        return task;
+    }
+
+    /**
+     * Reads from the item at the given path, through
+     * {@link #mountCall(String, MountExecutor.Call)} if it is a mount path.
+     */
+    <V> V read(String path, String operation, MountExecutor.Call<V> call) throws RepositoryException {
+        return measure(path, Operation.READ, operation, call);
+    }
+
+    /**
+     * Lists the children of the item at the given path, through
+     * {@link #mountCall(String, MountExecutor.Call)} if it is a mount path.
+     */
+    <V> V iterate(String path, String operation, MountExecutor.Call<V> call) throws RepositoryException {
+        return measure(path, Operation.ITERATE, operation, call);
+    }
+
+    /**
+     * Reads from an item of the given backend that is not routed by its path,
+     * e.g. from the version storage of the mount.
+     */
+    <V> V read(boolean mount, String operation, MountExecutor.Call<V> call) throws RepositoryException {
+        return measure(mount, Operation.READ, operation, call);
+    }
+
+    /**
+     * Lists the children of an item of the given backend that is not routed
+     * by its path.
+     */
+    <V> V iterate(boolean mount, String operation, MountExecutor.Call<V> call) throws RepositoryException {
+        return measure(mount, Operation.ITERATE, operation, call);
+    }
+
+    private <V> V measure(String path, Operation kind, String operation, MountExecutor.Call<V> call) throws RepositoryException {
+        return measure(isMount(path), kind, operation, call);
+    }
+
+    private <V> V measure(boolean mount, Operation kind, String operation, MountExecutor.Call<V> call) throws RepositoryException {
+        long start = ProxyMetrics.start();
+        try {
+            return mount ? mountCall(operation, call) : call.call();
+        } finally {
+            this.repository.metrics.record(mount, kind, start);
+        }
+    }
+
+    void markModified(String path) {
+        boolean mount = isMount(path);
+        if (mount) {
+            mountWritten(path);
+        } else {
+            jcrWritten();
+        }
+        this.repository.metrics.count(mount, Operation.WRITE);
+    }
+
+    /**
+     * Marks the JCR repository as modified if {@code jcr}, and the mount at
+     * the given path unless it is {@code null}.
+     */
+    void markModified(boolean jcr, String mountPath) {
+        if (jcr) {
+            jcrWritten();
+        }
+        if (mountPath != null) {
+            mountWritten(mountPath);
+        }
+    }
+
+    private void jcrWritten() {
+        jcrModified = true;
+        missing.clear();
+    }
+
+    /**
+     * Marks the mount as modified at the given path, or at an unknown path if
+     * {@code null}, so the read cache can be invalidated once saved.
+     */
+    private void mountWritten(String path) {
+        mountModified = true;
+        missing.clear();
+        if (mountWrites != null) {
+            if (path == null || mountWrites.size() >= 1000) {
+                mountWrites = null;
+            } else {
+                mountWrites.add(path);
+            }
+        }
+    }
+
+    /**
+     * Called after a workspace operation wrote to persistent storage directly,
+     * bypassing the transient space of this session. If the mount was written
+     * at unknown paths, its whole read cache is cleared.
+     */
+    void workspaceWritten(boolean mount, String... absPaths) {
+        missing.clear();
+        MountReadCache cache = this.repository.readCache;
+        if (mount && cache != null) {
+            if (absPaths.length == 0) {
+                cache.clear();
+            } else {
+                cache.invalidate(Arrays.asList(absPaths));
+            }
+        }
+    }
+
+    /**
+     * Returns the cache of paths found missing by this session, or {@code null}
+     * while changes may be made outside of the proxy, e.g. by an import
+     * content handler.
+     */
+    private NegativeLookupCache lookupCache() {
+        return lookupCacheSuspended ? null : missing;
+    }
+
+    void suspendLookupCache() {
+        lookupCacheSuspended = true;
+        missing.clear();
+    }
+
+    /**
+     * Returns the mount read cache, or {@code null} if there is none, the
+     * principals of this session are not known, or this session has pending
+     * changes on the mount which the cache does not see.
+     */
+    private MountReadCache readCache() {
+        if (mountModified) {
+            return null;
+        }
+        MountReadCache cache = this.repository.getReadCache();
+        if (cache == null) {
+            return null;
+        }
+        if (!principalsResolved) {
+            principalsResolved = true;
+            try {
+                Set<String> names = getPrincipalNames();
+                principals = names != null ? new MountReadCache.Principals(names) : null;
+            } catch (RepositoryException | RuntimeException ex) {
+                LOGGER.debug("Unable to resolve the principals of {}, existence checks are not cached", getUserID(), ex);
+            }
+        }
+        return principals != null ? cache : null;
+    }
+
+    /**
+     * Returns the names of the principals of this session, which the entries
+     * of the mount read cache are shared by, or {@code null} if not known.
+     */
+    protected Set<String> getPrincipalNames() throws RepositoryException {
+        return null;
     }
 
     public <F> F wrap(F source) {
@@ -110,22 +412,7 @@ public class ProxySession<T extends Session> implements Session {
     }
 
     public NodeIterator wrap(final NodeIterator iter) {
-        return new NodeIteratorAdapter(new Iterator<Node>() {
-            @Override
-            public boolean hasNext() {
-                return iter.hasNext();
-            }
-
-            @Override
-            public Node next() {
-                return wrap(iter.nextNode());
-            }
-
-            @Override
-            public void remove() {
-                iter.remove();
-            }
-        });
+        return iter instanceof ProxyNodeIterator ? iter : new ProxyNodeIterator(this, iter);
     }
 
     public PropertyIterator wrap(final PropertyIterator iter) {
@@ -168,85 +455,7 @@ public class ProxySession<T extends Session> implements Session {
     }
 
     public RowIterator wrap(final RowIterator iter) {
-        return new RowIterator() {
-
-            @Override
-            public Row nextRow() {
-                final Row row = iter.nextRow();
-
-                return new Row() {
-                    @Override
-                    public Value[] getValues() throws RepositoryException {
-                        return row.getValues();
-                    }
-
-                    @Override
-                    public Value getValue(String s) throws ItemNotFoundException, RepositoryException {
-                        return row.getValue(s);
-                    }
-
-                    @Override
-                    public Node getNode() throws RepositoryException {
-                        return wrap(row.getNode());
-                    }
-
-                    @Override
-                    public Node getNode(String s) throws RepositoryException {
-                        return wrap(row.getNode(s));
-                    }
-
-                    @Override
-                    public String getPath() throws RepositoryException {
-                        return row.getPath();
-                    }
-
-                    @Override
-                    public String getPath(String s) throws RepositoryException {
-                        return row.getPath(s);
-                    }
-
-                    @Override
-                    public double getScore() throws RepositoryException {
-                        return row.getScore();
-                    }
-
-                    @Override
-                    public double getScore(String s) throws RepositoryException {
-                        return row.getScore(s);
-                    }
-                };
-            }
-
-            @Override
-            public void skip(long l) {
-                iter.skip(l);
-            }
-
-            @Override
-            public long getSize() {
-                return iter.getSize();
-            }
-
-            @Override
-            public long getPosition() {
-                return iter.getPosition();
-            }
-
-            @Override
-            public boolean hasNext() {
-                return iter.hasNext();
-            }
-
-            @Override
-            public Object next() {
-                return nextRow();
-            }
-
-            @Override
-            public void remove() {
-                iter.remove();
-            }
-        };
+        return iter instanceof ProxyRowIterator ? iter : new ProxyRowIterator(this, iter);
     }
 
     @Override
@@ -275,7 +484,8 @@ public class ProxySession<T extends Session> implements Session {
     }
 
     public NodeIterator getNodes(String path, NodeIterator childs) throws RepositoryException {
-        if (isMountDirectParent(path)) {
+        // while the mount is unavailable its mount points are hidden
+        if (isMountDirectParent(path) && !this.repository.breaker.isOpen()) {
             List<Node> buffer = new ArrayList<>();
             while (childs.hasNext()) {
                 Node child = childs.nextNode();
@@ -283,18 +493,26 @@ public class ProxySession<T extends Session> implements Session {
                     buffer.add(child);
                 }
             }
-            for (String mountPoint : this.mountPoints) {
-                if (PathUtils.getParentPath(mountPoint).equals(path)) {
-                    buffer.add(this.mount.getNode(mountPoint));
+            List<String> mountPoints = getMountPoints(path);
+            if (this.mount instanceof BatchReader) {
+                buffer.addAll(mountCall("readNodes", () -> ((BatchReader) this.mount).readNodes(mountPoints)).values());
+            } else {
+                for (String mountPoint : mountPoints) {
+                    buffer.add(mountCall("getNode", () -> this.mount.getNode(mountPoint)));
                 }
             }
             childs = new NodeIteratorAdapter(buffer);
+        } else if (this.repository.prefetchSize > 0 && isMount(path)) {
+            MountExecutor executor = this.repository.getCallExecutor();
+            if (executor != null) {
+                childs = new PrefetchingNodeIterator(childs, executor, this.repository.prefetchSize, this.repository.mountTimeout);
+            }
         }
         return wrap(childs);
     }
 
     public boolean hasNodes(Node node) throws RepositoryException {
-        return isMountDirectParent(node.getPath()) || node.hasNodes();
+        return (isMountDirectParent(node.getPath()) && !this.repository.breaker.isOpen()) || node.hasNodes();
     }
 
     @Override
@@ -304,58 +522,380 @@ public class ProxySession<T extends Session> implements Session {
 
     @Override
     public Node getNodeByUUID(String uuid) throws ItemNotFoundException, RepositoryException {
-        try {
-            return wrap(this.jcr.getNodeByUUID(uuid));
-        } catch (RepositoryException ex) {
-            try {
-                return wrap(this.mount.getNodeByUUID(uuid));
-            } catch (RepositoryException ignore) {
-                throw ex;
-            }
-        }
+        return getNodeByIdentifier(uuid, true);
     }
 
     @Override
     public Node getNodeByIdentifier(String id) throws ItemNotFoundException, RepositoryException {
-        try {
-            return wrap(this.jcr.getNodeByIdentifier(id));
-        } catch (RepositoryException ex) {
-            try {
-                return wrap(this.mount.getNodeByIdentifier(id));
-            } catch (RepositoryException ignore) {
-                throw ex;
-            }
+        return getNodeByIdentifier(id, false);
+    }
+
+    private Node getNodeByIdentifier(String id, boolean uuid) throws RepositoryException {
+        switch (this.repository.identifierRouter.route(id)) {
+            case JCR:
+                return wrap(getNodeByIdentifier(this.jcr, id, uuid));
+            case MOUNT:
+                return wrap(getNodeByIdentifier(this.mount, id, uuid));
+            case MOUNT_FIRST:
+                try {
+                    return wrap(getNodeByIdentifier(this.mount, id, uuid));
+                } catch (RepositoryException ex) {
+                    try {
+                        return wrap(getNodeByIdentifier(this.jcr, id, uuid));
+                    } catch (RepositoryException ignore) {
+                        throw ex;
+                    }
+                }
+            default:
+                try {
+                    return wrap(getNodeByIdentifier(this.jcr, id, uuid));
+                } catch (RepositoryException ex) {
+                    try {
+                        Node node = getNodeByIdentifier(this.mount, id, uuid);
+                        this.repository.identifierRouter.mountIdentifier(id);
+                        return wrap(node);
+                    } catch (RepositoryException ignore) {
+                        throw ex;
+                    }
+                }
+        }
+    }
+
+    private static Node getNodeByIdentifier(Session session, String id, boolean uuid) throws RepositoryException {
+        return uuid ? session.getNodeByUUID(id) : session.getNodeByIdentifier(id);
+    }
+
+    String identified(String path, String id) {
+        if (isMount(path)) {
+            this.repository.identifierRouter.mountIdentifier(id);
         }
+        return id;
     }
 
     @Override
     public Item getItem(String absPath) throws PathNotFoundException, RepositoryException {
-        return wrap(isMount(absPath) ? this.mount.getItem(absPath) : this.jcr.getItem(absPath));
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        try {
+            return wrap(mount ? getMountItem(absPath) : this.jcr.getItem(absPath));
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+    }
+
+    private Item getMountItem(String absPath) throws RepositoryException {
+        MountReadCache cache = readCache();
+        if (cache != null && Boolean.FALSE.equals(cache.nodeExists(principals, absPath))
+                && Boolean.FALSE.equals(cache.propertyExists(principals, absPath))) {
+            throw new PathNotFoundException(absPath);
+        }
+        return mountCall("getItem", () -> this.mount.getItem(absPath));
     }
 
     @Override
     public Node getNode(String absPath) throws PathNotFoundException, RepositoryException {
-        return wrap(isMount(absPath) ? this.mount.getNode(absPath) : this.jcr.getNode(absPath));
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        try {
+            return wrap(mount ? getMountNode(absPath) : this.jcr.getNode(absPath));
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+    }
+
+    private Node getMountNode(String absPath) throws RepositoryException {
+        MountReadCache cache = readCache();
+        if (cache == null) {
+            return mountCall("getNode", () -> readMountNode(absPath));
+        }
+        if (Boolean.FALSE.equals(cache.nodeExists(principals, absPath))) {
+            throw new PathNotFoundException(absPath);
+        }
+        try {
+            Node node = mountCall("getNode", () -> readMountNode(absPath));
+            cache.putNode(principals, absPath, true);
+            return node;
+        } catch (PathNotFoundException ex) {
+            cache.putNode(principals, absPath, false);
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads a node of the mount, together with its properties if the mount
+     * supports batch reads.
+     */
+    private Node readMountNode(String absPath) throws RepositoryException {
+        if (this.mount instanceof BatchReader) {
+            Node node = ((BatchReader) this.mount).readNode(absPath);
+            if (node == null) {
+                throw new PathNotFoundException(absPath);
+            }
+            return node;
+        }
+        return this.mount.getNode(absPath);
+    }
+
+    /**
+     * Returns the child nodes of the given node. Children of a mount node are
+     * read in batches if the mount supports it.
+     */
+    NodeIterator getChildNodes(Node node) throws RepositoryException {
+        NodeIterator children = node.getNodes();
+        if (this.mount instanceof BatchReader && isMount(node.getPath())) {
+            return new BatchNodeIterator((BatchReader) this.mount, children, 100);
+        }
+        return children;
     }
 
     @Override
     public Property getProperty(String absPath) throws PathNotFoundException, RepositoryException {
-        return wrap(isMount(absPath) ? this.mount.getProperty(absPath) : this.jcr.getProperty(absPath));
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        try {
+            return wrap(mount ? getMountProperty(absPath) : this.jcr.getProperty(absPath));
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+    }
+
+    private Property getMountProperty(String absPath) throws RepositoryException {
+        MountReadCache cache = readCache();
+        if (cache == null) {
+            return mountCall("getProperty", () -> this.mount.getProperty(absPath));
+        }
+        if (Boolean.FALSE.equals(cache.propertyExists(principals, absPath))) {
+            throw new PathNotFoundException(absPath);
+        }
+        try {
+            Property property = mountCall("getProperty", () -> this.mount.getProperty(absPath));
+            cache.putProperty(principals, absPath, true);
+            return property;
+        } catch (PathNotFoundException ex) {
+            cache.putProperty(principals, absPath, false);
+            throw ex;
+        }
     }
 
     @Override
     public boolean itemExists(String absPath) throws RepositoryException {
-        return isMount(absPath) ? this.mount.itemExists(absPath) : this.jcr.itemExists(absPath);
+        NegativeLookupCache lookupCache = lookupCache();
+        if (lookupCache != null && lookupCache.isMissingItem(absPath)) {
+            return false;
+        }
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        boolean exists;
+        try {
+            if (mount) {
+                exists = readCache() != null ? mountNodeExists(absPath) || mountPropertyExists(absPath) : mountCall("itemExists", () -> this.mount.itemExists(absPath));
+            } else {
+                exists = this.jcr.itemExists(absPath);
+            }
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+        if (!exists && lookupCache != null) {
+            lookupCache.missingItem(absPath);
+        }
+        return exists;
     }
 
     @Override
     public boolean nodeExists(String absPath) throws RepositoryException {
-        return isMount(absPath) ? this.mount.nodeExists(absPath) : this.jcr.nodeExists(absPath);
+        NegativeLookupCache lookupCache = lookupCache();
+        if (lookupCache != null && lookupCache.isMissingNode(absPath)) {
+            return false;
+        }
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        boolean exists;
+        try {
+            exists = mount ? mountNodeExists(absPath) : this.jcr.nodeExists(absPath);
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+        if (!exists && lookupCache != null) {
+            lookupCache.missingNode(absPath);
+        }
+        return exists;
     }
 
     @Override
     public boolean propertyExists(String absPath) throws RepositoryException {
-        return isMount(absPath) ? this.mount.propertyExists(absPath) : this.jcr.propertyExists(absPath);
+        NegativeLookupCache lookupCache = lookupCache();
+        if (lookupCache != null && lookupCache.isMissingProperty(absPath)) {
+            return false;
+        }
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        boolean exists;
+        try {
+            exists = mount ? mountPropertyExists(absPath) : this.jcr.propertyExists(absPath);
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+        if (!exists && lookupCache != null) {
+            lookupCache.missingProperty(absPath);
+        }
+        return exists;
+    }
+
+    /**
+     * Looks up the item at the given path with a single call to the backend
+     * owning it, returning {@code null} if there is none. Backends that are a
+     * {@link JackrabbitSession} are asked for the item directly, others are
+     * asked for it and a {@link PathNotFoundException} means it is missing.
+     */
+    Item itemOrNull(String absPath) throws RepositoryException {
+        NegativeLookupCache lookupCache = lookupCache();
+        if (lookupCache != null && lookupCache.isMissingItem(absPath)) {
+            return null;
+        }
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        Item item;
+        try {
+            if (mount) {
+                MountReadCache cache = readCache();
+                if (cache != null && Boolean.FALSE.equals(cache.nodeExists(principals, absPath))
+                        && Boolean.FALSE.equals(cache.propertyExists(principals, absPath))) {
+                    item = null;
+                } else {
+                    item = mountCall("getItemOrNull", () -> itemOrNull(this.mount, absPath));
+                }
+            } else {
+                item = itemOrNull(this.jcr, absPath);
+            }
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+        if (item == null && lookupCache != null) {
+            lookupCache.missingItem(absPath);
+        }
+        return wrap(item);
+    }
+
+    Node nodeOrNull(String absPath) throws RepositoryException {
+        NegativeLookupCache lookupCache = lookupCache();
+        if (lookupCache != null && lookupCache.isMissingNode(absPath)) {
+            return null;
+        }
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        Node node;
+        try {
+            if (mount) {
+                MountReadCache cache = readCache();
+                if (cache != null && Boolean.FALSE.equals(cache.nodeExists(principals, absPath))) {
+                    node = null;
+                } else {
+                    node = mountCall("getNodeOrNull", () -> this.mount instanceof BatchReader ?
+                            ((BatchReader) this.mount).readNode(absPath) : nodeOrNull(this.mount, absPath));
+                    if (cache != null) {
+                        cache.putNode(principals, absPath, node != null);
+                    }
+                }
+            } else {
+                node = nodeOrNull(this.jcr, absPath);
+            }
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+        if (node == null && lookupCache != null) {
+            lookupCache.missingNode(absPath);
+        }
+        return wrap(node);
+    }
+
+    Property propertyOrNull(String absPath) throws RepositoryException {
+        NegativeLookupCache lookupCache = lookupCache();
+        if (lookupCache != null && lookupCache.isMissingProperty(absPath)) {
+            return null;
+        }
+        boolean mount = isMount(absPath);
+        long start = ProxyMetrics.start();
+        Property property;
+        try {
+            if (mount) {
+                MountReadCache cache = readCache();
+                if (cache != null && Boolean.FALSE.equals(cache.propertyExists(principals, absPath))) {
+                    property = null;
+                } else {
+                    property = mountCall("getPropertyOrNull", () -> propertyOrNull(this.mount, absPath));
+                    if (cache != null) {
+                        cache.putProperty(principals, absPath, property != null);
+                    }
+                }
+            } else {
+                property = propertyOrNull(this.jcr, absPath);
+            }
+        } finally {
+            this.repository.metrics.record(mount, Operation.READ, start);
+        }
+        if (property == null && lookupCache != null) {
+            lookupCache.missingProperty(absPath);
+        }
+        return wrap(property);
+    }
+
+    private static Item itemOrNull(Session session, String absPath) throws RepositoryException {
+        if (session instanceof JackrabbitSession) {
+            return ((JackrabbitSession) session).getItemOrNull(absPath);
+        }
+        try {
+            return session.getItem(absPath);
+        } catch (PathNotFoundException ex) {
+            return null;
+        }
+    }
+
+    private static Node nodeOrNull(Session session, String absPath) throws RepositoryException {
+        if (session instanceof JackrabbitSession) {
+            return ((JackrabbitSession) session).getNodeOrNull(absPath);
+        }
+        try {
+            return session.getNode(absPath);
+        } catch (PathNotFoundException ex) {
+            return null;
+        }
+    }
+
+    private static Property propertyOrNull(Session session, String absPath) throws RepositoryException {
+        if (session instanceof JackrabbitSession) {
+            return ((JackrabbitSession) session).getPropertyOrNull(absPath);
+        }
+        try {
+            return session.getProperty(absPath);
+        } catch (PathNotFoundException ex) {
+            return null;
+        }
+    }
+
+    private boolean mountNodeExists(String absPath) throws RepositoryException {
+        MountReadCache cache = readCache();
+        if (cache == null) {
+            return mountCall("nodeExists", () -> this.mount.nodeExists(absPath));
+        }
+        Boolean exists = cache.nodeExists(principals, absPath);
+        if (exists == null) {
+            exists = mountCall("nodeExists", () -> this.mount.nodeExists(absPath));
+            cache.putNode(principals, absPath, exists);
+        }
+        return exists;
+    }
+
+    private boolean mountPropertyExists(String absPath) throws RepositoryException {
+        MountReadCache cache = readCache();
+        if (cache == null) {
+            return mountCall("propertyExists", () -> this.mount.propertyExists(absPath));
+        }
+        Boolean exists = cache.propertyExists(principals, absPath);
+        if (exists == null) {
+            exists = mountCall("propertyExists", () -> this.mount.propertyExists(absPath));
+            cache.putProperty(principals, absPath, exists);
+        }
+        return exists;
     }
 
     @Override
@@ -363,16 +903,23 @@ public class ProxySession<T extends Session> implements Session {
         if (sync != null) {
             sync.remove(absPath);
         }
+        markModified(absPath);
         if (isMount(absPath)) {
             this.mount.removeItem(absPath);
         } else {
             this.jcr.removeItem(absPath);
             if (isMountParent(absPath)) {
-                for (String mountPoint : this.mountPoints) {
-                    if (mountPoint.startsWith((absPath + "/").replace("//", "/"))) {
-                        for (NodeIterator iter = this.mount.getNode(mountPoint).getNodes(); iter.hasNext(); ) {
-                            iter.nextNode().remove();
+                mountWritten(absPath);
+                for (String mountPoint : this.mountTable.getMountPointsBelow(absPath)) {
+                    if (this.mount instanceof BatchRemover) {
+                        ((BatchRemover) this.mount).removeChildren(mountPoint);
+                    } else if (this.repository.purgeBatchSize > 0) {
+                        if (purges == null) {
+                            purges = new LinkedHashSet<>();
                         }
+                        purges.add(mountPoint);
+                    } else {
+                        removeMountChildren(mountPoint);
                     }
                 }
             }
@@ -381,10 +928,62 @@ public class ProxySession<T extends Session> implements Session {
 
     private volatile Set<String> sync;
 
+    /**
+     * The mount points whose content is removed in batches once the removal
+     * of an ancestor is saved in the JCR repository.
+     */
+    private Set<String> purges;
+
+    /**
+     * Removes the children of a mount point one by one, the removal is saved
+     * with the session.
+     */
+    private void removeMountChildren(String mountPoint) throws RepositoryException {
+        Node root = this.mount.getNode(mountPoint);
+        for (NodeIterator iter = root.getNodes(); iter.hasNext(); ) {
+            iter.nextNode().remove();
+        }
+    }
+
+    /**
+     * Removes the content of the pending mount points, saving the mount after
+     * every {@link ProxyRepository#purgeBatchSize} nodes so its pending
+     * changes stay bounded. This runs once the JCR repository and the mount
+     * are saved and is not atomic with them: if it fails, the mount points
+     * that are not purged yet are kept and the next save continues with them.
+     */
+    private void purge() throws RepositoryException {
+        if (purges == null) {
+            return;
+        }
+        for (Iterator<String> iter = purges.iterator(); iter.hasNext(); ) {
+            String mountPoint = iter.next();
+            if (!this.mount.nodeExists(mountPoint)) {
+                iter.remove();
+                continue;
+            }
+            Node root = this.mount.getNode(mountPoint);
+            long count = 0;
+            for (NodeIterator nodes = root.getNodes(); nodes.hasNext(); ) {
+                nodes.nextNode().remove();
+                if (++count % this.repository.purgeBatchSize == 0) {
+                    this.mount.save();
+                    LOGGER.info("Removed {} nodes below {}", count, mountPoint);
+                    nodes = root.getNodes();
+                }
+            }
+            this.mount.save();
+            iter.remove();
+        }
+        purges = null;
+    }
+
     private final static List<String> ignore = Arrays.asList("jcr:primaryType", "jcr:created", "jcr:createdBy");
 
     @Override
     public void save() throws AccessDeniedException, ItemExistsException, ReferentialIntegrityException, ConstraintViolationException, InvalidItemStateException, VersionException, LockException, NoSuchNodeTypeException, RepositoryException {
+        missing.clear();
+        lookupCacheSuspended = false;
         if (sync != null) {
             for (String path : sync) {
                 if (this.jcr.nodeExists(path)) {
@@ -403,25 +1002,93 @@ public class ProxySession<T extends Session> implements Session {
                         } catch (ConstraintViolationException ex) {
                         }
                     }
+                    mountWritten(path);
                 }
             }
             sync = null;
         }
 
-        this.jcr.save();
+        // changes to the jcr side can also be made around the proxy, e.g. through authorizables,
+        // so unless it is known to be modified the (local) session is asked
+        if (jcrModified || this.jcr.hasPendingChanges()) {
+            long start = ProxyMetrics.start();
+            try {
+                this.jcr.save();
+            } finally {
+                this.repository.metrics.record(false, Operation.SAVE, start);
+            }
+            jcrModified = false;
+            sourcesSaved(false);
+        }
+
+        if (mountModified) {
+            long start = ProxyMetrics.start();
+            try {
+                this.mount.save();
+            } finally {
+                this.repository.metrics.record(true, Operation.SAVE, start);
+            }
+            sourcesSaved(true);
+            try {
+                purge();
+            } finally {
+                MountReadCache cache = this.repository.readCache;
+                if (cache != null) {
+                    if (mountWrites != null) {
+                        cache.invalidate(mountWrites);
+                    } else {
+                        cache.clear();
+                    }
+                }
+            }
+            mountModified = false;
+            mountWrites = new HashSet<>();
+        }
+        updateMountPoints();
+    }
 
-        this.mount.save();
+    /**
+     * Switches to the current mount points of the repository if they changed,
+     * unless there are pending changes that were routed with the previous ones.
+     */
+    private void updateMountPoints() {
+        MountTable current = this.repository.mountTable;
+        if (current != this.mountTable && !jcrModified && !mountModified && sync == null && purges == null && copies == null) {
+            this.mountTable = current;
+            missing.clear();
+        }
     }
 
     @Override
     public void refresh(boolean keepChanges) throws RepositoryException {
         sync = null;
+        missing.clear();
+        lookupCacheSuspended = false;
+        // long-lived sessions rely on refresh(false) to see changes made by others, on both sides,
+        // keeping the changes only needs to refresh the mount if there are any
         this.jcr.refresh(keepChanges);
-        this.mount.refresh(keepChanges);
+        if (mountModified || !keepChanges) {
+            this.mount.refresh(keepChanges);
+        }
+        if (!keepChanges) {
+            jcrModified = false;
+            mountModified = false;
+            mountWrites = new HashSet<>();
+            purges = null;
+            if (copies != null) {
+                // the sources of the moves are back, the saved copies are removed
+                for (String copy : copies) {
+                    removeCopy(copy, null);
+                }
+                copies = null;
+            }
+        }
+        updateMountPoints();
     }
 
     public void refresh(String path, Item item, boolean keepChanges) throws RepositoryException {
         sync = null;
+        missing.clear();
         item.refresh(keepChanges);
         if (!isMount(path) && isMountParent(path)) {
             this.mount.getRootNode().refresh(keepChanges);
@@ -430,7 +1097,7 @@ public class ProxySession<T extends Session> implements Session {
 
     @Override
     public boolean hasPendingChanges() throws RepositoryException {
-        return this.jcr.hasPendingChanges() || this.mount.hasPendingChanges();
+        return this.jcr.hasPendingChanges() || (mountModified && this.mount.hasPendingChanges());
     }
 
     @Override
@@ -457,6 +1124,8 @@ public class ProxySession<T extends Session> implements Session {
 
     @Override
     public ContentHandler getImportContentHandler(String parentAbsPath, int uuidBehavior) throws PathNotFoundException, ConstraintViolationException, VersionException, LockException, RepositoryException {
+        markModified(parentAbsPath);
+        suspendLookupCache();
         if (isMount(parentAbsPath)) {
             return this.mount.getImportContentHandler(parentAbsPath, uuidBehavior);
         } else {
@@ -466,6 +1135,7 @@ public class ProxySession<T extends Session> implements Session {
 
     @Override
     public void importXML(String parentAbsPath, InputStream in, int uuidBehavior) throws IOException, PathNotFoundException, ItemExistsException, ConstraintViolationException, VersionException, InvalidSerializedDataException, LockException, RepositoryException {
+        markModified(parentAbsPath);
         if (isMount(parentAbsPath)) {
             this.mount.importXML(parentAbsPath, in, uuidBehavior);
         } else {
@@ -477,6 +1147,8 @@ public class ProxySession<T extends Session> implements Session {
     public void exportSystemView(String absPath, ContentHandler contentHandler, boolean skipBinary, boolean noRecurse) throws PathNotFoundException, SAXException, RepositoryException {
         if (isMount(absPath)) {
             this.mount.exportSystemView(absPath, contentHandler, skipBinary, noRecurse);
+        } else if (!noRecurse && isMountParent(absPath)) {
+            export(absPath, contentHandler, skipBinary, true);
         } else {
             this.jcr.exportSystemView(absPath, contentHandler, skipBinary, noRecurse);
         }
@@ -486,6 +1158,8 @@ public class ProxySession<T extends Session> implements Session {
     public void exportSystemView(String absPath, OutputStream out, boolean skipBinary, boolean noRecurse) throws IOException, PathNotFoundException, RepositoryException {
         if (isMount(absPath)) {
             this.mount.exportSystemView(absPath, out, skipBinary, noRecurse);
+        } else if (!noRecurse && isMountParent(absPath)) {
+            export(absPath, out, skipBinary, true);
         } else {
             this.jcr.exportSystemView(absPath, out, skipBinary, noRecurse);
         }
@@ -495,6 +1169,8 @@ public class ProxySession<T extends Session> implements Session {
     public void exportDocumentView(String absPath, ContentHandler contentHandler, boolean skipBinary, boolean noRecurse) throws PathNotFoundException, SAXException, RepositoryException {
         if (isMount(absPath)) {
             this.mount.exportDocumentView(absPath, contentHandler, skipBinary, noRecurse);
+        } else if (!noRecurse && isMountParent(absPath)) {
+            export(absPath, contentHandler, skipBinary, false);
         } else {
             this.jcr.exportDocumentView(absPath, contentHandler, skipBinary, noRecurse);
         }
@@ -504,11 +1180,44 @@ public class ProxySession<T extends Session> implements Session {
     public void exportDocumentView(String absPath, OutputStream out, boolean skipBinary, boolean noRecurse) throws IOException, PathNotFoundException, RepositoryException {
         if (isMount(absPath)) {
             this.mount.exportDocumentView(absPath, out, skipBinary, noRecurse);
+        } else if (!noRecurse && isMountParent(absPath)) {
+            export(absPath, out, skipBinary, false);
         } else {
             this.jcr.exportDocumentView(absPath, out, skipBinary, noRecurse);
         }
     }
 
+    /**
+     * Exports a JCR subtree containing mount points, with the mounted content
+     * spliced in by a {@link MountSplicingHandler}.
+     */
+    private void export(String absPath, ContentHandler contentHandler, boolean skipBinary, boolean systemView) throws SAXException, RepositoryException {
+        ContentHandler splicer = new MountSplicingHandler(this, contentHandler, absPath, systemView, skipBinary);
+        try {
+            if (systemView) {
+                this.jcr.exportSystemView(absPath, splicer, skipBinary, false);
+            } else {
+                this.jcr.exportDocumentView(absPath, splicer, skipBinary, false);
+            }
+        } catch (SAXException ex) {
+            if (ex.getException() instanceof RepositoryException) {
+                throw (RepositoryException) ex.getException();
+            }
+            throw ex;
+        }
+    }
+
+    private void export(String absPath, OutputStream out, boolean skipBinary, boolean systemView) throws IOException, RepositoryException {
+        try {
+            export(absPath, SerializingContentHandler.getSerializer(out), skipBinary, systemView);
+        } catch (SAXException ex) {
+            if (ex.getException() instanceof IOException) {
+                throw (IOException) ex.getException();
+            }
+            throw new RepositoryException("Unable to serialize the export of " + absPath, ex);
+        }
+    }
+
     @Override
     public void setNamespacePrefix(String prefix, String uri) throws NamespaceException, RepositoryException {
         this.jcr.setNamespacePrefix(prefix, uri);
@@ -543,53 +1252,152 @@ public class ProxySession<T extends Session> implements Session {
 
     @Override
     public void addLockToken(String lt) {
-        this.jcr.addLockToken(lt);
+        try {
+            getWorkspace().getLockManager().addLockToken(lt);
+        } catch (RepositoryException ex) {
+            LOGGER.warn("Unable to add lock token {}", lt, ex);
+        }
     }
 
     @Override
     public String[] getLockTokens() {
-        return this.jcr.getLockTokens();
+        try {
+            return getWorkspace().getLockManager().getLockTokens();
+        } catch (RepositoryException ex) {
+            LOGGER.warn("Unable to read the lock tokens", ex);
+            return new String[0];
+        }
     }
 
     @Override
     public void removeLockToken(String lt) {
-        this.jcr.removeLockToken(lt);
+        try {
+            getWorkspace().getLockManager().removeLockToken(lt);
+        } catch (RepositoryException ex) {
+            LOGGER.warn("Unable to remove lock token {}", lt, ex);
+        }
     }
 
     @Override
     public AccessControlManager getAccessControlManager() throws UnsupportedRepositoryOperationException, RepositoryException {
-        AccessControlManager manager = this.jcr.getAccessControlManager();
-        return manager instanceof JackrabbitAccessControlManager ?
-                new ProxyJackrabbitAccessControlManager(this, (JackrabbitAccessControlManager) manager, (JackrabbitAccessControlManager) this.mount.getAccessControlManager()) :
-                new ProxyAccessControlManager<>(this, manager, this.mount.getAccessControlManager());
+        if (accessControlManager == null) {
+            AccessControlManager manager = this.jcr.getAccessControlManager();
+            accessControlManager = manager instanceof JackrabbitAccessControlManager ?
+                    new ProxyJackrabbitAccessControlManager(this, (JackrabbitAccessControlManager) manager, (JackrabbitAccessControlManager) this.mount.getAccessControlManager()) :
+                    new ProxyAccessControlManager<>(this, manager, this.mount.getAccessControlManager());
+        }
+        return accessControlManager;
     }
 
     @Override
     public RetentionManager getRetentionManager() throws UnsupportedRepositoryOperationException, RepositoryException {
+        // changes made through the retention manager are not visible to the proxy
+        suspendLookupCache();
         return this.jcr.getRetentionManager();
     }
 
     @Override
     public void move(String srcAbsPath, String destAbsPath) throws ItemExistsException, PathNotFoundException, VersionException, ConstraintViolationException, LockException, RepositoryException {
+        this.repository.metrics.count(isMount(srcAbsPath) || isMount(destAbsPath), Operation.WRITE);
         if (isMount(srcAbsPath) && isMount(destAbsPath)) {
+            mountWritten(srcAbsPath);
+            mountWritten(destAbsPath);
             this.mount.move(srcAbsPath, destAbsPath);
         } else if (!isMount(srcAbsPath) && !isMount(destAbsPath)) {
+            jcrWritten();
             this.jcr.move(srcAbsPath, destAbsPath);
         } else {
-            throw new IllegalStateException("Move between jcr and mount not supported");
+            jcrWritten();
+            mountWritten(isMount(srcAbsPath) ? srcAbsPath : destAbsPath);
+            // the copy is saved in batches before the removal of the source can be saved, so a failed
+            // save keeps the content twice instead of losing it
+            transfer(srcAbsPath, destAbsPath, true);
+            try {
+                (isMount(srcAbsPath) ? this.mount : this.jcr).removeItem(srcAbsPath);
+            } catch (RepositoryException | RuntimeException ex) {
+                removeCopy(destAbsPath, ex);
+                throw ex;
+            }
+            if (copies == null) {
+                copies = new LinkedHashSet<>();
+            }
+            copies.add(destAbsPath);
+        }
+    }
+
+    /**
+     * The targets of moves between the JCR repository and the mount whose
+     * source removal is not saved yet. They are removed again if the session
+     * is refreshed without keeping its changes.
+     */
+    private Set<String> copies;
+
+    /**
+     * Forgets the copies of moves whose source was removed from the given
+     * side, once that removal is saved.
+     */
+    private void sourcesSaved(boolean mount) {
+        if (copies != null) {
+            copies.removeIf(copy -> isMount(copy) != mount);
+            if (copies.isEmpty()) {
+                copies = null;
+            }
+        }
+    }
+
+    private void removeCopy(String absPath, Exception failure) {
+        Session target = isMount(absPath) ? this.mount : this.jcr;
+        try {
+            if (target.nodeExists(absPath)) {
+                target.getNode(absPath).remove();
+                target.save();
+            }
+        } catch (RepositoryException | RuntimeException ex) {
+            if (failure == null) {
+                LOGGER.error("Unable to remove the copy at {} of a discarded move", absPath, ex);
+            } else {
+                failure.addSuppressed(ex);
+            }
+        }
+    }
+
+    /**
+     * Copies a subtree between the JCR repository and the mount. If {@code save}
+     * is set, the target is saved in batches while copying.
+     */
+    long transfer(String srcAbsPath, String destAbsPath, boolean save) throws RepositoryException {
+        if (!isMount(srcAbsPath) && isMountParent(srcAbsPath)) {
+            throw new RepositoryException("Subtree " + srcAbsPath + " contains a mount point");
+        }
+        Session source = isMount(srcAbsPath) ? this.mount : this.jcr;
+        Session target = isMount(destAbsPath) ? this.mount : this.jcr;
+        if (save && target.hasPendingChanges()) {
+            throw new InvalidItemStateException("Session has pending changes in " + (target == this.mount ? "the mount" : "the repository"));
         }
+        return new SubtreeTransfer(source, target, repository.transferBatchSize, save).copy(srcAbsPath, destAbsPath);
     }
 
     @Override
     public Workspace getWorkspace() {
+        if (workspace == null) {
+            workspace = createWorkspace();
+        }
+        return workspace;
+    }
+
+    protected Workspace createWorkspace() {
         return new ProxyWorkspace(this, this.jcr.getWorkspace(), this.mount.getWorkspace());
     }
 
     public Node addNode(String parent, String path, String name) throws RepositoryException {
+        this.repository.metrics.count(isMount(path), Operation.WRITE);
         if (isMount(path)) {
+            mountWritten(path);
             return wrap(this.mount.getNode(parent).addNode(name));
         }
+        jcrWritten();
         if (isMountParent(path)) {
+            mountWritten(path);
             this.mount.getNode(parent).addNode(name);
             if (sync == null) {
                 sync = new HashSet<>();
@@ -600,10 +1408,14 @@ public class ProxySession<T extends Session> implements Session {
     }
 
     public Node addNode(String parent, String path, String name, String type) throws RepositoryException {
+        this.repository.metrics.count(isMount(path), Operation.WRITE);
         if (isMount(path)) {
+            mountWritten(path);
             return wrap(this.mount.getNode(parent).addNode(name, type));
         }
+        jcrWritten();
         if (isMountParent(path)) {
+            mountWritten(path);
             this.mount.getNode(parent).addNode(name, type);
             if (sync == null) {
                 sync = new HashSet<>();
@@ -19,7 +19,11 @@
 package org.apache.sling.jcr.base.internal.mount;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.UnsupportedRepositoryOperationException;
@@ -32,15 +36,100 @@ import org.apache.jackrabbit.api.security.user.Group;
 import org.apache.jackrabbit.api.security.user.Query;
 import org.apache.jackrabbit.api.security.user.User;
 import org.apache.jackrabbit.api.security.user.UserManager;
-
+import org.apache.sling.jcr.base.internal.mount.ProxyMetrics.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates authorizables in the JCR repository and mirrors them to the mount.
+ * If {@link ProxyRepository#deferAuthorizables} is set, the mount side is not
+ * created right away but queued and applied in one go before the session is
+ * saved.
+ * <p>
+ * A failed mirror is counted in the {@code authorizables.mirrorFailures}
+ * metric and reported to the caller, the authorizable is then only created
+ * in the transient space of the JCR repository. Queued authorizables stay
+ * queued if applying them fails, so that saving the session again retries
+ * them. {@link #getMissingOnMount()} lists the authorizables which are not
+ * on the mount.
+ */
 public class ProxyUserManager extends ProxyWrapper<UserManager> implements UserManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyUserManager.class);
+
+    private interface Creation {
+        void apply(UserManager mount) throws RepositoryException;
+    }
+
     private final UserManager mount;
+    private final Map<String, Creation> pending = new LinkedHashMap<>();
 
     public ProxyUserManager(ProxySession<JackrabbitSession> mountSession, UserManager delegate, UserManager mount) {
         super(mountSession, delegate);
         this.mount = mount;
     }
 
+    private void mirror(String id, String path, Creation creation) throws RepositoryException {
+        this.mountSession.markModified(false, path);
+        if (this.mountSession.repository.deferAuthorizables) {
+            pending.put(id, creation);
+        } else {
+            apply(id, creation);
+        }
+    }
+
+    private void apply(String id, Creation creation) throws RepositoryException {
+        try {
+            creation.apply(mount);
+        } catch (AuthorizableExistsException ex) {
+            // created by an earlier attempt
+            LOGGER.debug("Authorizable {} already exists on the mount", id);
+        } catch (RepositoryException | RuntimeException ex) {
+            this.mountSession.repository.authorizableMirrorFailures.increment();
+            LOGGER.warn("Unable to create authorizable {} on the mount", id, ex);
+            throw new RepositoryException("Unable to create authorizable " + id + " on the mount", ex);
+        }
+    }
+
+    /**
+     * Creates the queued authorizables on the mount, called before the
+     * session is saved.
+     */
+    void applyPending() throws RepositoryException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = ProxyMetrics.start();
+        try {
+            for (Iterator<Map.Entry<String, Creation>> iter = pending.entrySet().iterator(); iter.hasNext(); ) {
+                Map.Entry<String, Creation> entry = iter.next();
+                apply(entry.getKey(), entry.getValue());
+                iter.remove();
+            }
+        } finally {
+            this.mountSession.repository.metrics.record(true, Operation.WRITE, start);
+        }
+    }
+
+    void discardPending() {
+        pending.clear();
+    }
+
+    /**
+     * Returns the identifiers of the authorizables of the JCR repository that
+     * do not exist on the mount, e.g. because mirroring them failed or they
+     * are still queued, as a consistency check. This reads every authorizable
+     * and should not be called on a hot path.
+     */
+    public List<String> getMissingOnMount() throws RepositoryException {
+        List<String> missing = new ArrayList<>();
+        for (Iterator<Authorizable> iter = delegate.findAuthorizables("rep:principalName", null); iter.hasNext(); ) {
+            String id = iter.next().getID();
+            if (this.mountSession.mountCall("getAuthorizable", () -> mount.getAuthorizable(id)) == null) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
 
     public Authorizable getAuthorizable(String id) throws RepositoryException {
         return delegate.getAuthorizable(id);
@@ -71,44 +160,61 @@ public class ProxyUserManager extends ProxyWrapper<UserManager> implements UserM
     }
 
     public User createUser(String userID, String password) throws AuthorizableExistsException, RepositoryException {
+        mountSession.markModified(true, null);
         User user = delegate.createUser(userID, password);
-        mount.createUser(userID, password, user.getPrincipal(), user.getPath());
+        Principal userPrincipal = user.getPrincipal();
+        String path = user.getPath();
+        mirror(userID, path, manager -> manager.createUser(userID, password, userPrincipal, path));
         return user;
     }
 
     public User createUser(String userID, String password, Principal principal, String intermediatePath) throws AuthorizableExistsException, RepositoryException {
+        mountSession.markModified(true, null);
         User user = delegate.createUser(userID, password, principal, intermediatePath);
-        mount.createUser(userID, password, principal, user.getPath());
+        String path = user.getPath();
+        mirror(userID, path, manager -> manager.createUser(userID, password, principal, path));
         return user;
     }
 
     public User createSystemUser(String userID, String intermediatePath) throws AuthorizableExistsException, RepositoryException {
+        mountSession.markModified(true, null);
         User user = delegate.createSystemUser(userID, intermediatePath);
-        mount.createSystemUser(userID, user.getPath());
+        String path = user.getPath();
+        mirror(userID, path, manager -> manager.createSystemUser(userID, path));
         return user;
     }
 
     public Group createGroup(String groupID) throws AuthorizableExistsException, RepositoryException {
+        mountSession.markModified(true, null);
         Group group = delegate.createGroup(groupID);
-        mount.createGroup(groupID, group.getPrincipal(), group.getPath());
+        Principal groupPrincipal = group.getPrincipal();
+        String path = group.getPath();
+        mirror(groupID, path, manager -> manager.createGroup(groupID, groupPrincipal, path));
         return group;
     }
 
     public Group createGroup(Principal principal) throws AuthorizableExistsException, RepositoryException {
+        mountSession.markModified(true, null);
         Group group = delegate.createGroup(principal);
-        mount.createGroup(group.getID(), principal, group.getPath());
+        String id = group.getID();
+        String path = group.getPath();
+        mirror(id, path, manager -> manager.createGroup(id, principal, path));
         return group;
     }
 
     public Group createGroup(Principal principal, String intermediatePath) throws AuthorizableExistsException, RepositoryException {
+        mountSession.markModified(true, null);
         Group group = delegate.createGroup(principal, intermediatePath);
-        mount.createGroup(principal, group.getPath());
+        String path = group.getPath();
+        mirror(group.getID(), path, manager -> manager.createGroup(principal, path));
         return group;
     }
 
     public Group createGroup(String groupID, Principal principal, String intermediatePath) throws AuthorizableExistsException, RepositoryException {
+        mountSession.markModified(true, null);
         Group group = delegate.createGroup(groupID, principal, intermediatePath);
-        mount.createGroup(groupID, principal, group.getPath());
+        String path = group.getPath();
+        mirror(groupID, path, manager -> manager.createGroup(groupID, principal, path));
         return group;
     }
 
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.Calendar;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
+
+/**
+ * A version of the JCR repository or of the mount. Related versions and the
+ * frozen node are wrapped as nodes of the same backend.
+ */
+public class ProxyVersion extends ProxyVersionStorageNode implements Version {
+    public ProxyVersion(ProxySession<?> mountSession, Version delegate, boolean mount) {
+        super(mountSession, delegate, mount);
+    }
+
+    static Version wrap(ProxySession<?> mountSession, Version version, boolean mount) {
+        return version == null || version instanceof ProxyVersion ? version : new ProxyVersion(mountSession, version, mount);
+    }
+
+    static Version[] wrap(ProxySession<?> mountSession, Version[] versions, boolean mount) {
+        Version[] result = new Version[versions.length];
+        for (int i = 0; i < versions.length; i++) {
+            result[i] = wrap(mountSession, versions[i], mount);
+        }
+        return result;
+    }
+
+    private Version version() {
+        return (Version) this.delegate;
+    }
+
+    @Override
+    public VersionHistory getContainingHistory() throws RepositoryException {
+        return ProxyVersionHistory.wrap(this.mountSession, version().getContainingHistory(), mount);
+    }
+
+    @Override
+    public Calendar getCreated() throws RepositoryException {
+        return version().getCreated();
+    }
+
+    @Override
+    public Version getLinearSuccessor() throws RepositoryException {
+        return wrap(this.mountSession, version().getLinearSuccessor(), mount);
+    }
+
+    @Override
+    public Version[] getSuccessors() throws RepositoryException {
+        return wrap(this.mountSession, version().getSuccessors(), mount);
+    }
+
+    @Override
+    public Version getLinearPredecessor() throws RepositoryException {
+        return wrap(this.mountSession, version().getLinearPredecessor(), mount);
+    }
+
+    @Override
+    public Version[] getPredecessors() throws RepositoryException {
+        return wrap(this.mountSession, version().getPredecessors(), mount);
+    }
+
+    @Override
+    public Node getFrozenNode() throws RepositoryException {
+        return ProxyVersionStorageNode.wrap(this.mountSession, version().getFrozenNode(), mount);
+    }
+}
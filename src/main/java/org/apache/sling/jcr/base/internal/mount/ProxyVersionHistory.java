@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
+import javax.jcr.version.VersionIterator;
+
+/**
+ * A version history of the JCR repository or of the mount. Its versions and
+ * frozen nodes are wrapped as nodes of the same backend.
+ */
+public class ProxyVersionHistory extends ProxyVersionStorageNode implements VersionHistory {
+    public ProxyVersionHistory(ProxySession<?> mountSession, VersionHistory delegate, boolean mount) {
+        super(mountSession, delegate, mount);
+    }
+
+    static VersionHistory wrap(ProxySession<?> mountSession, VersionHistory history, boolean mount) {
+        return history == null || history instanceof ProxyVersionHistory ? history : new ProxyVersionHistory(mountSession, history, mount);
+    }
+
+    private VersionHistory history() {
+        return (VersionHistory) this.delegate;
+    }
+
+    private Version wrap(Version version) {
+        return ProxyVersion.wrap(this.mountSession, version, mount);
+    }
+
+    private VersionIterator wrap(final VersionIterator iter) {
+        return new VersionIterator() {
+            @Override
+            public Version nextVersion() {
+                return wrap(iter.nextVersion());
+            }
+
+            @Override
+            public void skip(long skipNum) {
+                iter.skip(skipNum);
+            }
+
+            @Override
+            public long getSize() {
+                return iter.getSize();
+            }
+
+            @Override
+            public long getPosition() {
+                return iter.getPosition();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return nextVersion();
+            }
+        };
+    }
+
+    @Override
+    @Deprecated
+    public String getVersionableUUID() throws RepositoryException {
+        return history().getVersionableUUID();
+    }
+
+    @Override
+    public String getVersionableIdentifier() throws RepositoryException {
+        return history().getVersionableIdentifier();
+    }
+
+    @Override
+    public Version getRootVersion() throws RepositoryException {
+        return wrap(history().getRootVersion());
+    }
+
+    @Override
+    public VersionIterator getAllLinearVersions() throws RepositoryException {
+        return wrap(history().getAllLinearVersions());
+    }
+
+    @Override
+    public VersionIterator getAllVersions() throws RepositoryException {
+        return wrap(history().getAllVersions());
+    }
+
+    @Override
+    public NodeIterator getAllLinearFrozenNodes() throws RepositoryException {
+        return wrapNodes(history().getAllLinearFrozenNodes());
+    }
+
+    @Override
+    public NodeIterator getAllFrozenNodes() throws RepositoryException {
+        return wrapNodes(history().getAllFrozenNodes());
+    }
+
+    @Override
+    public Version getVersion(String versionName) throws RepositoryException {
+        return wrap(history().getVersion(versionName));
+    }
+
+    @Override
+    public Version getVersionByLabel(String label) throws RepositoryException {
+        return wrap(history().getVersionByLabel(label));
+    }
+
+    @Override
+    public void addVersionLabel(String versionName, String label, boolean moveLabel) throws RepositoryException {
+        history().addVersionLabel(versionName, label, moveLabel);
+    }
+
+    @Override
+    public void removeVersionLabel(String label) throws RepositoryException {
+        history().removeVersionLabel(label);
+    }
+
+    @Override
+    public boolean hasVersionLabel(String label) throws RepositoryException {
+        return history().hasVersionLabel(label);
+    }
+
+    @Override
+    public boolean hasVersionLabel(Version version, String label) throws RepositoryException {
+        return history().hasVersionLabel(this.mountSession.unwrap(version), label);
+    }
+
+    @Override
+    public String[] getVersionLabels() throws RepositoryException {
+        return history().getVersionLabels();
+    }
+
+    @Override
+    public String[] getVersionLabels(Version version) throws RepositoryException {
+        return history().getVersionLabels(this.mountSession.unwrap(version));
+    }
+
+    @Override
+    public void removeVersion(String versionName) throws RepositoryException {
+        history().removeVersion(versionName);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.UnsupportedRepositoryOperationException;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
+import javax.jcr.version.VersionManager;
+
+/**
+ * Dispatches version operations by path to the version manager of the JCR
+ * repository or of the mount. Versions are wrapped with the backend they come
+ * from, several versions are restored together per backend. Activities and
+ * configurations are only supported by the JCR repository.
+ */
+public class ProxyVersionManager extends ProxyWrapper<VersionManager> implements VersionManager {
+    private final VersionManager delegate2;
+
+    public ProxyVersionManager(ProxySession<?> mountSession, VersionManager delegate, VersionManager delegate2) {
+        super(mountSession, delegate);
+        this.delegate2 = delegate2;
+    }
+
+    private VersionManager getManager(boolean mount) throws RepositoryException {
+        if (!mount) {
+            return delegate;
+        }
+        if (delegate2 == null) {
+            throw new UnsupportedRepositoryOperationException("The mount does not support versioning");
+        }
+        return delegate2;
+    }
+
+    private static boolean isMount(Version version) {
+        return version instanceof ProxyVersion && ((ProxyVersion) version).mount;
+    }
+
+    private Version wrap(Version version, boolean mount) {
+        return ProxyVersion.wrap(this.mountSession, version, mount);
+    }
+
+    @Override
+    public Version checkin(String absPath) throws RepositoryException {
+        boolean mount = this.mountSession.isMount(absPath);
+        return wrap(getManager(mount).checkin(absPath), mount);
+    }
+
+    @Override
+    public void checkout(String absPath) throws RepositoryException {
+        getManager(this.mountSession.isMount(absPath)).checkout(absPath);
+    }
+
+    @Override
+    public Version checkpoint(String absPath) throws RepositoryException {
+        boolean mount = this.mountSession.isMount(absPath);
+        return wrap(getManager(mount).checkpoint(absPath), mount);
+    }
+
+    @Override
+    public boolean isCheckedOut(String absPath) throws RepositoryException {
+        return getManager(this.mountSession.isMount(absPath)).isCheckedOut(absPath);
+    }
+
+    @Override
+    public VersionHistory getVersionHistory(String absPath) throws RepositoryException {
+        boolean mount = this.mountSession.isMount(absPath);
+        return ProxyVersionHistory.wrap(this.mountSession, getManager(mount).getVersionHistory(absPath), mount);
+    }
+
+    @Override
+    public Version getBaseVersion(String absPath) throws RepositoryException {
+        boolean mount = this.mountSession.isMount(absPath);
+        return wrap(getManager(mount).getBaseVersion(absPath), mount);
+    }
+
+    /**
+     * Restores the versions of each backend together, those of the JCR
+     * repository first. The backends cannot restore atomically together: if
+     * restoring the versions of the mount fails, those of the JCR repository
+     * stay restored.
+     */
+    @Override
+    public void restore(Version[] versions, boolean removeExisting) throws RepositoryException {
+        List<Version> jcrVersions = new ArrayList<>();
+        List<Version> mountVersions = new ArrayList<>();
+        for (Version version : versions) {
+            (isMount(version) ? mountVersions : jcrVersions).add(this.mountSession.unwrap(version));
+        }
+        if (!jcrVersions.isEmpty() || mountVersions.isEmpty()) {
+            delegate.restore(jcrVersions.toArray(new Version[0]), removeExisting);
+            this.mountSession.workspaceWritten(false);
+        }
+        if (!mountVersions.isEmpty()) {
+            getManager(true).restore(mountVersions.toArray(new Version[0]), removeExisting);
+            this.mountSession.workspaceWritten(true);
+        }
+    }
+
+    @Override
+    public void restore(String absPath, String versionName, boolean removeExisting) throws RepositoryException {
+        getManager(this.mountSession.isMount(absPath)).restore(absPath, versionName, removeExisting);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(absPath), absPath);
+    }
+
+    @Override
+    public void restore(Version version, boolean removeExisting) throws RepositoryException {
+        getManager(isMount(version)).restore(this.mountSession.unwrap(version), removeExisting);
+        this.mountSession.workspaceWritten(isMount(version));
+    }
+
+    @Override
+    public void restore(String absPath, Version version, boolean removeExisting) throws RepositoryException {
+        getManager(this.mountSession.isMount(absPath)).restore(absPath, this.mountSession.unwrap(version), removeExisting);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(absPath), absPath);
+    }
+
+    @Override
+    public void restoreByLabel(String absPath, String versionLabel, boolean removeExisting) throws RepositoryException {
+        getManager(this.mountSession.isMount(absPath)).restoreByLabel(absPath, versionLabel, removeExisting);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(absPath), absPath);
+    }
+
+    @Override
+    public NodeIterator merge(String absPath, String srcWorkspace, boolean bestEffort) throws RepositoryException {
+        NodeIterator failed = getManager(this.mountSession.isMount(absPath)).merge(absPath, srcWorkspace, bestEffort);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(absPath), absPath);
+        return this.mountSession.wrap(failed);
+    }
+
+    @Override
+    public NodeIterator merge(String absPath, String srcWorkspace, boolean bestEffort, boolean isShallow) throws RepositoryException {
+        NodeIterator failed = getManager(this.mountSession.isMount(absPath)).merge(absPath, srcWorkspace, bestEffort, isShallow);
+        this.mountSession.workspaceWritten(this.mountSession.isMount(absPath), absPath);
+        return this.mountSession.wrap(failed);
+    }
+
+    @Override
+    public void doneMerge(String absPath, Version version) throws RepositoryException {
+        getManager(this.mountSession.isMount(absPath)).doneMerge(absPath, this.mountSession.unwrap(version));
+    }
+
+    @Override
+    public void cancelMerge(String absPath, Version version) throws RepositoryException {
+        getManager(this.mountSession.isMount(absPath)).cancelMerge(absPath, this.mountSession.unwrap(version));
+    }
+
+    @Override
+    public Node createConfiguration(String absPath) throws RepositoryException {
+        return this.mountSession.wrap(delegate.createConfiguration(absPath));
+    }
+
+    @Override
+    public Node setActivity(Node activity) throws RepositoryException {
+        return this.mountSession.wrap(delegate.setActivity(this.mountSession.unwrap(activity)));
+    }
+
+    @Override
+    public Node getActivity() throws RepositoryException {
+        return this.mountSession.wrap(delegate.getActivity());
+    }
+
+    @Override
+    public Node createActivity(String title) throws RepositoryException {
+        return this.mountSession.wrap(delegate.createActivity(title));
+    }
+
+    @Override
+    public void removeActivity(Node activityNode) throws RepositoryException {
+        delegate.removeActivity(this.mountSession.unwrap(activityNode));
+    }
+
+    @Override
+    public NodeIterator merge(Node activityNode) throws RepositoryException {
+        NodeIterator failed = delegate.merge(this.mountSession.unwrap(activityNode));
+        this.mountSession.workspaceWritten(false);
+        return this.mountSession.wrap(failed);
+    }
+}
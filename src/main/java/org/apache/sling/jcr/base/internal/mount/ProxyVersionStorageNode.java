@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import javax.jcr.AccessDeniedException;
+import javax.jcr.Item;
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
+
+/**
+ * A node in the version storage of the JCR repository or of the mount. As
+ * the version storage of both is below {@code /jcr:system}, its nodes are
+ * not routed by path but read from the backend they come from, and related
+ * nodes are wrapped as nodes of the same backend.
+ */
+public class ProxyVersionStorageNode extends ProxyNode {
+    final boolean mount;
+
+    public ProxyVersionStorageNode(ProxySession<?> mountSession, Node delegate, boolean mount) {
+        super(mountSession, delegate);
+        this.mount = mount;
+    }
+
+    static Node wrap(ProxySession<?> mountSession, Node node, boolean mount) {
+        if (node == null || node instanceof ProxyWrapper) {
+            return node;
+        }
+        if (node instanceof Version) {
+            return ProxyVersion.wrap(mountSession, (Version) node, mount);
+        }
+        if (node instanceof VersionHistory) {
+            return ProxyVersionHistory.wrap(mountSession, (VersionHistory) node, mount);
+        }
+        return new ProxyVersionStorageNode(mountSession, node, mount);
+    }
+
+    private Node wrap(Node node) {
+        return wrap(this.mountSession, node, mount);
+    }
+
+    /**
+     * Wraps the given nodes as nodes of the backend of this node.
+     */
+    protected NodeIterator wrapNodes(NodeIterator iter) {
+        return new ProxyNodeIterator(this.mountSession, iter) {
+            @Override
+            protected Node wrap(Node node) {
+                return ProxyVersionStorageNode.this.wrap(node);
+            }
+        };
+    }
+
+    @Override
+    public Item getAncestor(int depth) throws ItemNotFoundException, AccessDeniedException, RepositoryException {
+        Item ancestor = this.mountSession.read(mount, "getAncestor", () -> this.delegate.getAncestor(depth));
+        return ancestor instanceof Node ? wrap((Node) ancestor) : this.mountSession.wrap(ancestor);
+    }
+
+    @Override
+    public Node getParent() throws ItemNotFoundException, AccessDeniedException, RepositoryException {
+        return wrap(this.mountSession.read(mount, "getParent", () -> this.delegate.getParent()));
+    }
+
+    @Override
+    public Node getNode(String relPath) throws PathNotFoundException, RepositoryException {
+        return wrap(this.mountSession.read(mount, "getNode", () -> this.delegate.getNode(relPath)));
+    }
+
+    @Override
+    public NodeIterator getNodes() throws RepositoryException {
+        return wrapNodes(this.mountSession.iterate(mount, "getNodes", () -> this.delegate.getNodes()));
+    }
+
+    @Override
+    public NodeIterator getNodes(String namePattern) throws RepositoryException {
+        return wrapNodes(this.mountSession.iterate(mount, "getNodes", () -> this.delegate.getNodes(namePattern)));
+    }
+
+    @Override
+    public NodeIterator getNodes(String[] nameGlobs) throws RepositoryException {
+        return wrapNodes(this.mountSession.iterate(mount, "getNodes", () -> this.delegate.getNodes(nameGlobs)));
+    }
+
+    @Override
+    public Property getProperty(String relPath) throws PathNotFoundException, RepositoryException {
+        return this.mountSession.wrap(this.mountSession.read(mount, "getProperty", () -> this.delegate.getProperty(relPath)));
+    }
+
+    @Override
+    public PropertyIterator getProperties() throws RepositoryException {
+        return this.mountSession.wrap(this.mountSession.iterate(mount, "getProperties", () -> this.delegate.getProperties()));
+    }
+
+    @Override
+    public PropertyIterator getProperties(String namePattern) throws RepositoryException {
+        return this.mountSession.wrap(this.mountSession.iterate(mount, "getProperties", () -> this.delegate.getProperties(namePattern)));
+    }
+
+    @Override
+    public PropertyIterator getProperties(String[] nameGlobs) throws RepositoryException {
+        return this.mountSession.wrap(this.mountSession.iterate(mount, "getProperties", () -> this.delegate.getProperties(nameGlobs)));
+    }
+
+    @Override
+    public boolean hasNode(String relPath) throws RepositoryException {
+        return this.mountSession.read(mount, "hasNode", () -> this.delegate.hasNode(relPath));
+    }
+
+    @Override
+    public boolean hasProperty(String relPath) throws RepositoryException {
+        return this.mountSession.read(mount, "hasProperty", () -> this.delegate.hasProperty(relPath));
+    }
+
+    @Override
+    public boolean hasNodes() throws RepositoryException {
+        return this.mountSession.read(mount, "hasNodes", () -> this.delegate.hasNodes());
+    }
+}
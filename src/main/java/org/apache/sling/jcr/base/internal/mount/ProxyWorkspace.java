@@ -46,6 +46,12 @@ import org.xml.sax.ContentHandler;
 
 public class ProxyWorkspace<T extends Workspace> extends ProxyWrapper<T> implements Workspace {
     final T delegate2;
+    private QueryManager queryManager;
+    private NamespaceRegistry namespaceRegistry;
+    private NodeTypeManager nodeTypeManager;
+    private ObservationManager observationManager;
+    private LockManager lockManager;
+    private VersionManager versionManager;
 
     public ProxyWorkspace(ProxySession mountSession, T delegate, T delegate2) {
         super(mountSession, delegate);
@@ -64,7 +70,10 @@ public class ProxyWorkspace<T extends Workspace> extends ProxyWrapper<T> impleme
 
     @Override
     public QueryManager getQueryManager() throws RepositoryException {
-        return new ProxyQueryManager(this.mountSession, delegate.getQueryManager(), this.delegate2.getQueryManager());
+        if (queryManager == null) {
+            queryManager = new ProxyQueryManager(this.mountSession, delegate.getQueryManager(), this.delegate2.getQueryManager());
+        }
+        return queryManager;
     }
 
     // TODO: revisit the below
@@ -83,9 +92,12 @@ public class ProxyWorkspace<T extends Workspace> extends ProxyWrapper<T> impleme
     public void copy(String srcAbsPath, String destAbsPath) throws ConstraintViolationException, VersionException, AccessDeniedException, PathNotFoundException, ItemExistsException, LockException, RepositoryException {
         if (mountSession.isMount(srcAbsPath) && mountSession.isMount(destAbsPath)) {
             delegate2.copy(srcAbsPath, destAbsPath);
+        } else if (mountSession.isMount(srcAbsPath) || mountSession.isMount(destAbsPath)) {
+            mountSession.transfer(srcAbsPath, destAbsPath, true);
         } else {
             delegate.copy(srcAbsPath, destAbsPath);
         }
+        mountSession.workspaceWritten(mountSession.isMount(destAbsPath), destAbsPath);
     }
 
     @Override
@@ -95,6 +107,7 @@ public class ProxyWorkspace<T extends Workspace> extends ProxyWrapper<T> impleme
         } else {
             delegate.copy(srcWorkspace, srcAbsPath, destAbsPath);
         }
+        mountSession.workspaceWritten(mountSession.isMount(srcAbsPath) && mountSession.isMount(destAbsPath), destAbsPath);
     }
 
     @Override
@@ -104,20 +117,49 @@ public class ProxyWorkspace<T extends Workspace> extends ProxyWrapper<T> impleme
         } else {
             delegate.clone(srcWorkspace, srcAbsPath, destAbsPath, removeExisting);
         }
+        boolean mount = mountSession.isMount(srcAbsPath) && mountSession.isMount(destAbsPath);
+        if (removeExisting) {
+            // nodes with the same identifiers are removed wherever they are
+            mountSession.workspaceWritten(mount);
+        } else {
+            mountSession.workspaceWritten(mount, destAbsPath);
+        }
     }
 
     @Override
     public void move(String srcAbsPath, String destAbsPath) throws ConstraintViolationException, VersionException, AccessDeniedException, PathNotFoundException, ItemExistsException, LockException, RepositoryException {
         if (mountSession.isMount(srcAbsPath) && mountSession.isMount(destAbsPath)) {
             delegate2.move(srcAbsPath, destAbsPath);
+        } else if (mountSession.isMount(srcAbsPath) || mountSession.isMount(destAbsPath)) {
+            Session source = mountSession.isMount(srcAbsPath) ? mountSession.mount : mountSession.jcr;
+            if (source.hasPendingChanges()) {
+                throw new InvalidItemStateException("Session has pending changes");
+            }
+            Session target = mountSession.isMount(destAbsPath) ? mountSession.mount : mountSession.jcr;
+            mountSession.transfer(srcAbsPath, destAbsPath, true);
+            try {
+                source.removeItem(srcAbsPath);
+                source.save();
+            } catch (RepositoryException | RuntimeException ex) {
+                // the source is kept, remove the copy so that the content does not exist twice
+                source.refresh(false);
+                try {
+                    target.removeItem(destAbsPath);
+                    target.save();
+                } catch (RepositoryException | RuntimeException cleanup) {
+                    ex.addSuppressed(cleanup);
+                }
+                throw ex;
+            }
         } else {
             delegate.move(srcAbsPath, destAbsPath);
         }
+        mountSession.workspaceWritten(mountSession.isMount(srcAbsPath) || mountSession.isMount(destAbsPath), srcAbsPath, destAbsPath);
     }
 
     @Override
     public void restore(Version[] versions, boolean removeExisting) throws ItemExistsException, UnsupportedRepositoryOperationException, VersionException, LockException, InvalidItemStateException, RepositoryException {
-        delegate.restore(versions, removeExisting);
+        getVersionManager().restore(versions, removeExisting);
     }
 
     @Override
@@ -138,27 +180,67 @@ public class ProxyWorkspace<T extends Workspace> extends ProxyWrapper<T> impleme
 
     @Override
     public LockManager getLockManager() throws UnsupportedRepositoryOperationException, RepositoryException {
-        return delegate.getLockManager();
+        if (lockManager == null) {
+            LockManager manager = delegate.getLockManager();
+            LockManager manager2;
+            try {
+                manager2 = this.delegate2.getLockManager();
+            } catch (UnsupportedRepositoryOperationException ex) {
+                manager2 = null;
+            }
+            lockManager = new ProxyLockManager(this.mountSession, manager, manager2);
+        }
+        return lockManager;
     }
 
     @Override
     public NamespaceRegistry getNamespaceRegistry() throws RepositoryException {
-        return new ProxyNamespaceRegistry(delegate.getNamespaceRegistry(), this.delegate2.getNamespaceRegistry());
+        if (namespaceRegistry == null) {
+            namespaceRegistry = new ProxyNamespaceRegistry(delegate.getNamespaceRegistry(), this.delegate2.getNamespaceRegistry(), this.mountSession.repository.getTypeCache());
+        }
+        return namespaceRegistry;
     }
 
     @Override
     public NodeTypeManager getNodeTypeManager() throws RepositoryException {
-        return new ProxyNodeTypeManager(delegate.getNodeTypeManager(), this.delegate2.getNodeTypeManager());
+        if (nodeTypeManager == null) {
+            nodeTypeManager = new ProxyNodeTypeManager(delegate.getNodeTypeManager(), this.delegate2.getNodeTypeManager(), this.mountSession.repository.getTypeCache());
+        }
+        return nodeTypeManager;
     }
 
     @Override
     public ObservationManager getObservationManager() throws UnsupportedRepositoryOperationException, RepositoryException {
-        return delegate.getObservationManager();
+        if (observationManager == null) {
+            ObservationManager manager = delegate.getObservationManager();
+            ObservationManager manager2;
+            try {
+                manager2 = this.delegate2.getObservationManager();
+            } catch (UnsupportedRepositoryOperationException ex) {
+                manager2 = null;
+            }
+            observationManager = createObservationManager(manager, manager2);
+        }
+        return observationManager;
+    }
+
+    protected ObservationManager createObservationManager(ObservationManager manager, ObservationManager manager2) {
+        return new ProxyObservationManager(this.mountSession, manager, manager2);
     }
 
     @Override
     public VersionManager getVersionManager() throws UnsupportedRepositoryOperationException, RepositoryException {
-        return delegate.getVersionManager();
+        if (versionManager == null) {
+            VersionManager manager = delegate.getVersionManager();
+            VersionManager manager2;
+            try {
+                manager2 = this.delegate2.getVersionManager();
+            } catch (UnsupportedRepositoryOperationException ex) {
+                manager2 = null;
+            }
+            versionManager = new ProxyVersionManager(this.mountSession, manager, manager2);
+        }
+        return versionManager;
     }
 
     @Override
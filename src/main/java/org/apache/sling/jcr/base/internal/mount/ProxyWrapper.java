@@ -30,10 +30,12 @@ public class ProxyWrapper<T> {
     }
 
     String concat(String parent, String relPath) {
-        if (relPath != null) {
-            while (relPath.startsWith("/")) {
-                relPath = relPath.substring(1);
+        if (relPath != null && relPath.startsWith("/")) {
+            int start = 1;
+            while (start < relPath.length() && relPath.charAt(start) == '/') {
+                start++;
             }
+            relPath = relPath.substring(start);
         }
         return PathUtils.concat(parent, relPath);
     }
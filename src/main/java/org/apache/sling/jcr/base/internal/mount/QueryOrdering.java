@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.query.Query;
+import javax.jcr.query.Row;
+import javax.jcr.query.qom.DynamicOperand;
+import javax.jcr.query.qom.FullTextSearchScore;
+import javax.jcr.query.qom.LowerCase;
+import javax.jcr.query.qom.NodeLocalName;
+import javax.jcr.query.qom.NodeName;
+import javax.jcr.query.qom.Ordering;
+import javax.jcr.query.qom.PropertyValue;
+import javax.jcr.query.qom.QueryObjectModelConstants;
+import javax.jcr.query.qom.UpperCase;
+
+/**
+ * Compares query result rows according to the orderings of a query, so that
+ * the results of both repositories can be merged in order. The values a row
+ * is ordered by are evaluated once as its sort key, from the columns of the
+ * row if possible. A query ordering is only created if all of its orderings
+ * are understood.
+ */
+final class QueryOrdering implements MergingIterator.SortKey<Row, Object[]>, Comparator<Object[]> {
+    private static final Pattern SQL2_ORDER_BY = Pattern.compile("\\bORDER\\s+BY\\b(.*?)(\\bOPTION\\s*\\(.*)?$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern XPATH_ORDER_BY = Pattern.compile("\\border\\s+by\\b(.*?)(\\boption\\s*\\(.*)?$", Pattern.DOTALL);
+
+    private interface Operand {
+        Object evaluate(Row row) throws RepositoryException;
+    }
+
+    private final List<Operand> operands;
+    private final List<Boolean> descending;
+
+    private QueryOrdering(List<Operand> operands, List<Boolean> descending) {
+        this.operands = operands;
+        this.descending = descending;
+    }
+
+    static QueryOrdering from(Ordering[] orderings) {
+        if (orderings == null || orderings.length == 0) {
+            return null;
+        }
+        List<Operand> operands = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        for (Ordering ordering : orderings) {
+            Operand operand = from(ordering.getOperand());
+            if (operand == null) {
+                return null;
+            }
+            operands.add(operand);
+            descending.add(QueryObjectModelConstants.JCR_ORDER_DESCENDING.equals(ordering.getOrder()));
+        }
+        return new QueryOrdering(operands, descending);
+    }
+
+    static QueryOrdering parse(String statement, String language) {
+        if (statement == null) {
+            return null;
+        }
+        boolean xpath = "xpath".equals(language);
+        if (!xpath && !Query.JCR_SQL2.equals(language)) {
+            return null;
+        }
+        String skeleton = QueryScope.mask(statement, new ArrayList<>());
+        if (skeleton == null) {
+            return null;
+        }
+        Matcher matcher = (xpath ? XPATH_ORDER_BY : SQL2_ORDER_BY).matcher(skeleton);
+        if (!matcher.find() || matcher.group(1).indexOf(QueryScope.LITERAL) >= 0) {
+            return null;
+        }
+        List<Operand> operands = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        for (String item : split(matcher.group(1))) {
+            String[] parts = item.trim().split("\\s+");
+            if (parts.length > 2) {
+                return null;
+            }
+            String direction = parts.length == 2 ? parts[1].toLowerCase(Locale.ENGLISH) : null;
+            if (direction != null && !direction.equals(xpath ? "ascending" : "asc") && !direction.equals(xpath ? "descending" : "desc")) {
+                return null;
+            }
+            Operand operand = xpath ? parseXPath(parts[0]) : parseSql2(parts[0]);
+            if (operand == null) {
+                return null;
+            }
+            operands.add(operand);
+            descending.add(direction != null && direction.startsWith("desc"));
+        }
+        return operands.isEmpty() ? null : new QueryOrdering(operands, descending);
+    }
+
+    @Override
+    public Object[] of(Row row) throws RepositoryException {
+        Object[] key = new Object[operands.size()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = operands.get(i).evaluate(row);
+        }
+        return key;
+    }
+
+    @Override
+    public int compare(Object[] key1, Object[] key2) {
+        for (int i = 0; i < operands.size(); i++) {
+            int result = compareValues(key1[i], key2[i]);
+            if (result != 0) {
+                return descending.get(i) ? -result : result;
+            }
+        }
+        return 0;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareValues(Object value1, Object value2) {
+        if (value1 == null || value2 == null) {
+            return value1 == null ? (value2 == null ? 0 : -1) : 1;
+        }
+        if (value1.getClass() == value2.getClass() && value1 instanceof Comparable) {
+            return ((Comparable) value1).compareTo(value2);
+        }
+        if (value1 instanceof Number && value2 instanceof Number) {
+            return Double.compare(((Number) value1).doubleValue(), ((Number) value2).doubleValue());
+        }
+        return value1.toString().compareTo(value2.toString());
+    }
+
+    private static Object toComparable(Value value) throws RepositoryException {
+        switch (value.getType()) {
+        case PropertyType.LONG:
+            return value.getLong();
+        case PropertyType.DOUBLE:
+            return value.getDouble();
+        case PropertyType.DECIMAL:
+            return value.getDecimal();
+        case PropertyType.DATE:
+            return value.getDate().getTimeInMillis();
+        case PropertyType.BOOLEAN:
+            return value.getBoolean();
+        default:
+            return value.getString();
+        }
+    }
+
+    private static Node getNode(Row row, String selector) throws RepositoryException {
+        return selector == null ? row.getNode() : row.getNode(selector);
+    }
+
+    private static Operand from(DynamicOperand operand) {
+        if (operand instanceof PropertyValue) {
+            return property(((PropertyValue) operand).getSelectorName(), ((PropertyValue) operand).getPropertyName());
+        }
+        if (operand instanceof FullTextSearchScore) {
+            return score(((FullTextSearchScore) operand).getSelectorName());
+        }
+        if (operand instanceof NodeName) {
+            return name(((NodeName) operand).getSelectorName(), false);
+        }
+        if (operand instanceof NodeLocalName) {
+            return name(((NodeLocalName) operand).getSelectorName(), true);
+        }
+        if (operand instanceof LowerCase) {
+            return toCase(from(((LowerCase) operand).getOperand()), false);
+        }
+        if (operand instanceof UpperCase) {
+            return toCase(from(((UpperCase) operand).getOperand()), true);
+        }
+        return null;
+    }
+
+    private static Operand property(final String selector, final String name) {
+        final String column = selector == null ? name : selector + "." + name;
+        return row -> {
+            try {
+                Value value = row.getValue(column);
+                return value == null ? null : toComparable(value);
+            } catch (ItemNotFoundException | IllegalArgumentException ex) {
+                // not a column of the query, read from the node
+            }
+            Node node = getNode(row, selector);
+            if (node == null || !node.hasProperty(name)) {
+                return null;
+            }
+            Property property = node.getProperty(name);
+            return property.isMultiple() ? null : toComparable(property.getValue());
+        };
+    }
+
+    private static Operand score(final String selector) {
+        return row -> selector == null ? row.getScore() : row.getScore(selector);
+    }
+
+    private static Operand name(final String selector, final boolean local) {
+        return row -> {
+            Node node = getNode(row, selector);
+            if (node == null) {
+                return null;
+            }
+            String name = node.getName();
+            return local ? name.substring(name.indexOf(':') + 1) : name;
+        };
+    }
+
+    private static Operand toCase(final Operand operand, final boolean upper) {
+        if (operand == null) {
+            return null;
+        }
+        return row -> {
+            Object value = operand.evaluate(row);
+            if (value == null) {
+                return null;
+            }
+            return upper ? value.toString().toUpperCase(Locale.ENGLISH) : value.toString().toLowerCase(Locale.ENGLISH);
+        };
+    }
+
+    private static Operand parseSql2(String item) {
+        int open = item.indexOf('(');
+        if (open > 0 && item.endsWith(")") && item.charAt(0) != '[') {
+            String function = item.substring(0, open).toUpperCase(Locale.ENGLISH);
+            String argument = item.substring(open + 1, item.length() - 1).trim();
+            if (function.equals("LOWER") || function.equals("UPPER")) {
+                return toCase(parseSql2(argument), function.equals("UPPER"));
+            }
+            String selector = argument.isEmpty() ? null : unbracket(argument);
+            if (function.equals("SCORE")) {
+                return score(selector);
+            }
+            if (function.equals("NAME")) {
+                return name(selector, false);
+            }
+            if (function.equals("LOCALNAME")) {
+                return name(selector, true);
+            }
+            return null;
+        }
+        String selector = null;
+        String name = item;
+        if (item.startsWith("[")) {
+            int close = item.indexOf(']');
+            if (close < 0) {
+                return null;
+            }
+            if (close < item.length() - 1) {
+                if (item.charAt(close + 1) != '.') {
+                    return null;
+                }
+                selector = item.substring(1, close);
+                name = item.substring(close + 2);
+            }
+        } else if (item.indexOf('.') > 0) {
+            selector = item.substring(0, item.indexOf('.'));
+            name = item.substring(item.indexOf('.') + 1);
+        }
+        name = unbracket(name);
+        if (name.isEmpty() || name.equals("*") || name.indexOf('(') >= 0) {
+            return null;
+        }
+        return property(selector, name);
+    }
+
+    private static Operand parseXPath(String item) {
+        if (item.equals("jcr:score()")) {
+            return score(null);
+        }
+        if (item.equals("fn:name()")) {
+            return name(null, false);
+        }
+        if (item.equals("fn:local-name()")) {
+            return name(null, true);
+        }
+        if ((item.startsWith("fn:lower-case(") || item.startsWith("fn:upper-case(")) && item.endsWith(")")) {
+            return toCase(parseXPath(item.substring("fn:lower-case(".length(), item.length() - 1).trim()), item.startsWith("fn:upper"));
+        }
+        int at = item.lastIndexOf('@');
+        if (at < 0 || at > 0 && item.charAt(at - 1) != '/' || item.contains("_x") || item.indexOf('(') >= 0
+                || item.indexOf('*') >= 0 || item.indexOf('[') >= 0) {
+            return null;
+        }
+        String name = item.substring(0, at) + item.substring(at + 1);
+        return name.isEmpty() ? null : property(null, name);
+    }
+
+    private static String unbracket(String name) {
+        return name.startsWith("[") && name.endsWith("]") ? name.substring(1, name.length() - 1) : name;
+    }
+
+    private static List<String> split(String clause) {
+        List<String> items = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < clause.length(); i++) {
+            char c = clause.charAt(i);
+            if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                items.add(clause.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (!clause.trim().isEmpty()) {
+            items.add(clause.substring(start));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.jcr.query.Query;
+import javax.jcr.query.qom.And;
+import javax.jcr.query.qom.ChildNode;
+import javax.jcr.query.qom.Constraint;
+import javax.jcr.query.qom.DescendantNode;
+import javax.jcr.query.qom.SameNode;
+import javax.jcr.query.qom.Selector;
+import javax.jcr.query.qom.Source;
+
+/**
+ * Determines the path a query is restricted to. The path returned is the root
+ * of a subtree containing all possible results, or {@code null} if the query
+ * is not restricted or the restriction could not be determined safely.
+ */
+final class QueryScope {
+    private static final Pattern SQL2_UNSUPPORTED = Pattern.compile("\\b(OR|UNION|JOIN)\\b|\\bNOT\\s*\\(*\\s*IS(DESCENDANT|CHILD|SAME)NODE\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SQL2_PATH_CONSTRAINT = Pattern.compile("\\bIS(DESCENDANT|CHILD|SAME)NODE\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    static final char LITERAL = '\uE000';
+
+    private QueryScope() {
+    }
+
+    static String getPath(String statement, String language) {
+        if (statement == null) {
+            return null;
+        }
+        if (Query.JCR_SQL2.equals(language)) {
+            return getSql2Path(statement);
+        }
+        if ("xpath".equals(language)) {
+            return getXPathPath(statement.trim());
+        }
+        return null;
+    }
+
+    static String getPath(Source source, Constraint constraint) {
+        return source instanceof Selector ? getPath(constraint) : null;
+    }
+
+    private static String getPath(Constraint constraint) {
+        if (constraint instanceof And) {
+            return narrower(getPath(((And) constraint).getConstraint1()), getPath(((And) constraint).getConstraint2()));
+        }
+        if (constraint instanceof DescendantNode) {
+            return ((DescendantNode) constraint).getAncestorPath();
+        }
+        if (constraint instanceof ChildNode) {
+            return ((ChildNode) constraint).getParentPath();
+        }
+        if (constraint instanceof SameNode) {
+            return ((SameNode) constraint).getPath();
+        }
+        return null;
+    }
+
+    private static String getSql2Path(String statement) {
+        List<String> literals = new ArrayList<>();
+        String skeleton = mask(statement, literals);
+        if (skeleton == null) {
+            return null;
+        }
+        if (SQL2_UNSUPPORTED.matcher(skeleton).find()) {
+            return null;
+        }
+        String result = null;
+        Matcher matcher = SQL2_PATH_CONSTRAINT.matcher(skeleton);
+        while (matcher.find()) {
+            String arguments = skeleton.substring(matcher.start(2), matcher.end(2)).trim();
+            int comma = arguments.lastIndexOf(',');
+            String argument = (comma >= 0 ? arguments.substring(comma + 1) : arguments).trim();
+            String path;
+            if (argument.length() > 2 && argument.charAt(0) == LITERAL && argument.charAt(argument.length() - 1) == LITERAL) {
+                path = literals.get(Integer.parseInt(argument.substring(1, argument.length() - 1)));
+            } else if (argument.startsWith("[/") && argument.endsWith("]")) {
+                path = argument.substring(1, argument.length() - 1);
+            } else {
+                return null;
+            }
+            if (!path.startsWith("/")) {
+                return null;
+            }
+            if (result == null) {
+                result = path;
+            } else {
+                result = narrower(result, path);
+                if (result == null) {
+                    return null;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces string literals by a marker so keywords inside of them are not
+     * matched. The literals are collected in the given list, the marker holds
+     * their index. Returns {@code null} for an unterminated literal.
+     */
+    static String mask(String statement, List<String> literals) {
+        StringBuilder skeleton = new StringBuilder(statement.length());
+        for (int i = 0; i < statement.length(); i++) {
+            char c = statement.charAt(i);
+            if (c == '\'' || c == '"') {
+                StringBuilder literal = new StringBuilder();
+                int j = i + 1;
+                while (j < statement.length()) {
+                    char d = statement.charAt(j);
+                    if (d == c) {
+                        if (j + 1 < statement.length() && statement.charAt(j + 1) == c) {
+                            literal.append(c);
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    literal.append(d);
+                    j++;
+                }
+                if (j >= statement.length()) {
+                    return null;
+                }
+                skeleton.append(LITERAL).append(literals.size()).append(LITERAL);
+                literals.add(literal.toString());
+                i = j;
+            } else {
+                skeleton.append(c);
+            }
+        }
+        return skeleton.toString();
+    }
+
+    private static String getXPathPath(String statement) {
+        if (!statement.startsWith("/jcr:root") || statement.indexOf('|') >= 0 || statement.startsWith("/jcr:root(")) {
+            return null;
+        }
+        StringBuilder path = new StringBuilder();
+        int start = "/jcr:root".length();
+        while (start < statement.length() && statement.charAt(start) == '/') {
+            int end = start + 1;
+            while (end < statement.length() && "/[( ".indexOf(statement.charAt(end)) < 0) {
+                end++;
+            }
+            String step = statement.substring(start + 1, end);
+            // anything but a plain name ends the path, which only widens the scope
+            if (step.isEmpty() || end < statement.length() && statement.charAt(end) != '/'
+                    || step.indexOf('*') >= 0 || step.indexOf('@') >= 0 || step.contains("_x") || step.equals("..") || step.equals(".")) {
+                break;
+            }
+            path.append('/').append(step);
+            start = end;
+        }
+        return path.length() == 0 ? "/" : path.toString();
+    }
+
+    private static String narrower(String path1, String path2) {
+        if (path1 == null) {
+            return path2;
+        }
+        if (path2 == null) {
+            return path1;
+        }
+        if (isSameOrDescendant(path2, path1)) {
+            return path2;
+        }
+        if (isSameOrDescendant(path1, path2)) {
+            return path1;
+        }
+        return null;
+    }
+
+    private static boolean isSameOrDescendant(String path, String ancestor) {
+        return path.equals(ancestor) || "/".equals(ancestor) || path.startsWith(ancestor) && path.charAt(ancestor.length()) == '/';
+    }
+}
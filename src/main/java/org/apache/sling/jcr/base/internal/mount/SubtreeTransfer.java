@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.jcr.Binary;
+import javax.jcr.ItemExistsException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import javax.jcr.nodetype.NodeType;
+
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies a subtree from one session to another, for moving content between
+ * the JCR repository and the mount. The source is walked depth-first, only
+ * the iterators along the current path are held. If saving is enabled the
+ * target session is saved after each batch of nodes, so its transient space
+ * stays bounded as well. Identifiers are not preserved. If the copy fails,
+ * the nodes copied so far are removed again.
+ */
+public class SubtreeTransfer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubtreeTransfer.class);
+
+    private final Session source;
+    private final Session target;
+    private final int batchSize;
+    private final boolean save;
+    private long count;
+    private String destination;
+
+    public SubtreeTransfer(Session source, Session target, int batchSize, boolean save) {
+        this.source = source;
+        this.target = target;
+        this.batchSize = Math.max(1, batchSize);
+        this.save = save;
+    }
+
+    /**
+     * Copies the node at {@code srcAbsPath} with its subtree to
+     * {@code destAbsPath}, returning the number of nodes copied.
+     */
+    public long copy(String srcAbsPath, String destAbsPath) throws RepositoryException {
+        if (target.nodeExists(destAbsPath)) {
+            throw new ItemExistsException(destAbsPath);
+        }
+        Node root = source.getNode(srcAbsPath);
+        this.destination = destAbsPath;
+        Node parent = target.getNode(PathUtils.getParentPath(destAbsPath));
+        Deque<NodeIterator> sources = new ArrayDeque<>();
+        Deque<Node> targets = new ArrayDeque<>();
+
+        try {
+            Node copy = copyNode(root, parent, PathUtils.getName(destAbsPath));
+            sources.push(root.getNodes());
+            targets.push(copy);
+            while (!sources.isEmpty()) {
+                NodeIterator children = sources.peek();
+                if (!children.hasNext()) {
+                    sources.pop();
+                    targets.pop();
+                    continue;
+                }
+                Node child = children.nextNode();
+                Node childCopy = copyNode(child, targets.peek(), child.getName());
+                sources.push(child.getNodes());
+                targets.push(childCopy);
+            }
+            if (save) {
+                target.save();
+            }
+        } catch (RepositoryException | RuntimeException ex) {
+            removePartialCopy(destAbsPath, ex);
+            throw ex;
+        }
+        LOGGER.debug("Copied {} nodes from {} to {}", count, srcAbsPath, destAbsPath);
+        return count;
+    }
+
+    /**
+     * Removes what was copied before the failure, so that a failed copy or
+     * move does not leave a partial subtree behind.
+     */
+    private void removePartialCopy(String destAbsPath, Exception failure) {
+        try {
+            if (save) {
+                // discard the unsaved batch, the target had no other pending changes
+                target.refresh(false);
+            }
+            if (target.nodeExists(destAbsPath)) {
+                target.getNode(destAbsPath).remove();
+                if (save) {
+                    target.save();
+                }
+            }
+            LOGGER.warn("Copy to {} failed after {} nodes, the partial copy was removed", destAbsPath, count);
+        } catch (RepositoryException | RuntimeException ex) {
+            failure.addSuppressed(ex);
+            LOGGER.error("Copy to {} failed after {} nodes, the partial copy could not be removed", destAbsPath, count, ex);
+        }
+    }
+
+    private Node copyNode(Node node, Node parent, String name) throws RepositoryException {
+        Node copy = parent.addNode(name, node.getPrimaryNodeType().getName());
+        for (NodeType mixin : node.getMixinNodeTypes()) {
+            copy.addMixin(mixin.getName());
+        }
+        ValueFactory factory = target.getValueFactory();
+        for (PropertyIterator properties = node.getProperties(); properties.hasNext(); ) {
+            Property property = properties.nextProperty();
+            if (property.getDefinition().isProtected()) {
+                continue;
+            }
+            if (property.isMultiple()) {
+                Value[] values = property.getValues();
+                Value[] converted = new Value[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    converted[i] = convert(values[i], factory);
+                }
+                copy.setProperty(property.getName(), converted, property.getType());
+            } else {
+                copy.setProperty(property.getName(), convert(property.getValue(), factory));
+            }
+        }
+        if (++count % batchSize == 0) {
+            if (save) {
+                target.save();
+            }
+            LOGGER.info("Copied {} nodes to {}", count, destination);
+        }
+        return copy;
+    }
+
+    private static Value convert(Value value, ValueFactory factory) throws RepositoryException {
+        if (value.getType() == PropertyType.BINARY) {
+            Binary binary = value.getBinary();
+            try {
+                return factory.createValue(factory.createBinary(binary.getStream()));
+            } finally {
+                binary.dispose();
+            }
+        }
+        return factory.createValue(value.getString(), value.getType());
+    }
+}
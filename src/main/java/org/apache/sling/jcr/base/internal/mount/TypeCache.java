@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.NamespaceRegistry;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.nodetype.NodeTypeIterator;
+import javax.jcr.nodetype.NodeTypeManager;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable snapshots of the registered node type names and namespace
+ * mappings of the JCR repository, shared by all proxy sessions. The snapshots
+ * are dropped when node types or namespaces are registered through the
+ * proxy, or when changes below {@code /jcr:system} are observed, and are
+ * reloaded on the next lookup. The generation counts these invalidations.
+ * Snapshots are only taken while changes are observed, through the session of
+ * the proxy itself, lookups are delegated to the session otherwise.
+ */
+public class TypeCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TypeCache.class);
+
+    private static final String[] OBSERVED_PATHS = {"/jcr:system/jcr:nodeTypes", "/jcr:system/rep:namespaces"};
+
+    static final class Namespaces {
+        final Map<String, String> uris;
+        final Map<String, String> prefixes;
+        final String[] prefixArray;
+        final String[] uriArray;
+
+        Namespaces(NamespaceRegistry registry) throws RepositoryException {
+            this.prefixArray = registry.getPrefixes();
+            Map<String, String> uris = new HashMap<>();
+            Map<String, String> prefixes = new HashMap<>();
+            for (String prefix : prefixArray) {
+                String uri = registry.getURI(prefix);
+                uris.put(prefix, uri);
+                prefixes.put(uri, prefix);
+            }
+            this.uris = Collections.unmodifiableMap(uris);
+            this.prefixes = Collections.unmodifiableMap(prefixes);
+            this.uriArray = registry.getURIs();
+        }
+    }
+
+    private final AtomicLong generation = new AtomicLong();
+    private final EventListener[] listeners = {events -> invalidate(), events -> invalidate()};
+    private volatile Set<String> nodeTypes;
+    private volatile Namespaces namespaces;
+    private volatile Session observed;
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        nodeTypes = null;
+        namespaces = null;
+    }
+
+    /**
+     * Returns whether the node type is registered, from the snapshot if
+     * changes are observed or from the given manager otherwise. The snapshot
+     * is read through the observed session, as the names of other sessions
+     * may use remapped prefixes.
+     */
+    boolean hasNodeType(NodeTypeManager manager, String name) throws RepositoryException {
+        Set<String> result = nodeTypes;
+        if (result == null) {
+            Session session = observed;
+            if (session == null) {
+                return manager.hasNodeType(name);
+            }
+            long current = generation.get();
+            result = new HashSet<>();
+            for (NodeTypeIterator iter = session.getWorkspace().getNodeTypeManager().getAllNodeTypes(); iter.hasNext(); ) {
+                result.add(iter.nextNodeType().getName());
+            }
+            result = Collections.unmodifiableSet(result);
+            // a snapshot read during an invalidation may already be stale
+            if (observed != null && generation.get() == current) {
+                nodeTypes = result;
+            }
+        }
+        // names that are not in the snapshot may use a prefix remapped by the session
+        return result.contains(name) || manager.hasNodeType(name);
+    }
+
+    /**
+     * Returns the snapshot of the namespace mappings of the given registry,
+     * or {@code null} if changes are not observed and lookups should go to
+     * the registry directly.
+     */
+    Namespaces getNamespaces(NamespaceRegistry registry) throws RepositoryException {
+        Namespaces result = namespaces;
+        if (result == null) {
+            if (observed == null) {
+                return null;
+            }
+            long current = generation.get();
+            result = new Namespaces(registry);
+            if (observed != null && generation.get() == current) {
+                namespaces = result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Listens for node type and namespace changes through the given session,
+     * unless another session is used for this already. Returns whether
+     * changes are observed.
+     */
+    public boolean observe(Session session) {
+        synchronized (listeners) {
+            if (observed != null) {
+                return true;
+            }
+            try {
+                ObservationManager manager = session.getWorkspace().getObservationManager();
+                for (int i = 0; i < OBSERVED_PATHS.length; i++) {
+                    manager.addEventListener(listeners[i], Event.NODE_ADDED | Event.NODE_REMOVED | Event.PROPERTY_ADDED
+                            | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED, OBSERVED_PATHS[i], true, null, null, false);
+                }
+                observed = session;
+                return true;
+            } catch (RepositoryException | RuntimeException ex) {
+                LOGGER.debug("Unable to observe node type changes", ex);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Drops the snapshots and stops keeping them, called once the observed
+     * session is logged out.
+     */
+    public void clear() {
+        synchronized (listeners) {
+            observed = null;
+        }
+        invalidate();
+    }
+}
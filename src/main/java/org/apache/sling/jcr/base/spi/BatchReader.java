@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.spi;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import org.osgi.annotation.versioning.ConsumerType;
+
+/**
+ * A {@code BatchReader} can optionally be implemented by the sessions a
+ * {@link RepositoryMount} hands out, if reading several items in one call is
+ * cheaper for it than reading them one by one, e.g. because every call is a
+ * remote round trip. If implemented, the proxy reads nodes under the mount
+ * through it, otherwise it calls the session for each item.
+ * <p>
+ * The nodes returned must be nodes of the session implementing this
+ * interface.
+ */
+@ConsumerType
+public interface BatchReader {
+
+    /**
+     * Reads the node at the given path together with its properties and the
+     * names and types of its child nodes. The properties of the child nodes
+     * do not need to be read.
+     *
+     * @param absPath the absolute path of the node
+     * @return the node or {@code null} if it does not exist
+     * @throws RepositoryException if reading fails
+     */
+    Node readNode(String absPath) throws RepositoryException;
+
+    /**
+     * Reads the nodes at the given paths together with their properties.
+     *
+     * @param absPaths the absolute paths of the nodes
+     * @return the nodes by their path, in the order of the given paths; paths
+     *         that do not exist are left out
+     * @throws RepositoryException if reading fails
+     */
+    Map<String, Node> readNodes(Collection<String> absPaths) throws RepositoryException;
+}
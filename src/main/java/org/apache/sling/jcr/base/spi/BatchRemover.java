@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.spi;
+
+import javax.jcr.RepositoryException;
+
+import org.osgi.annotation.versioning.ConsumerType;
+
+/**
+ * A {@code BatchRemover} can optionally be implemented by the sessions a
+ * {@link RepositoryMount} hands out, if it can remove a whole subtree in one
+ * operation. It is used when a node of the JCR repository is removed that is
+ * an ancestor of a mount point, otherwise the children of the mount point are
+ * removed one by one.
+ */
+@ConsumerType
+public interface BatchRemover {
+
+    /**
+     * Removes all child nodes of the node at the given path. The removal
+     * becomes part of the pending changes of the session and is persisted
+     * with its next save.
+     *
+     * @param absPath the absolute path of the node
+     * @throws RepositoryException if the removal fails
+     */
+    void removeChildren(String absPath) throws RepositoryException;
+}
@@ -53,4 +53,119 @@ public interface RepositoryMount extends JackrabbitRepository
      * in the JCR repository.
      */
     String MOUNT_POINTS_KEY = "org.apache.sling.jcr.base.RepositoryMount.MOUNT_POINTS";
+
+    /**
+     * The repository can optionally register itself with this property which is a
+     * String+ property defining the prefixes of the node identifiers it hands out.
+     * If set, identifier lookups are routed to the mount or the JCR repository
+     * based on these prefixes instead of probing both.
+     */
+    String MOUNT_IDENTIFIER_PREFIXES_KEY = "org.apache.sling.jcr.base.RepositoryMount.IDENTIFIER_PREFIXES";
+
+    /**
+     * The repository can optionally register itself with this property which is an
+     * Integer property defining how many queries against the mount may run
+     * concurrently to the query against the JCR repository. If not set or zero,
+     * queries are executed one after the other. The mount must support its
+     * sessions being used from another thread for this.
+     */
+    String MOUNT_QUERY_CONCURRENCY_KEY = "org.apache.sling.jcr.base.RepositoryMount.QUERY_CONCURRENCY";
+
+    /**
+     * The repository can optionally register itself with this property which is a
+     * Long property defining the time in milliseconds after which a concurrently
+     * executed query against the mount is cancelled.
+     */
+    String MOUNT_QUERY_TIMEOUT_KEY = "org.apache.sling.jcr.base.RepositoryMount.QUERY_TIMEOUT";
+
+    /**
+     * The repository can optionally register itself with this property which is a
+     * Long property defining the time in milliseconds during which events of the
+     * mount are collected and coalesced before they are delivered to listeners.
+     * If not set or zero, events are delivered as they arrive.
+     */
+    String MOUNT_EVENT_DELAY_KEY = "org.apache.sling.jcr.base.RepositoryMount.EVENT_DELAY";
+
+    /**
+     * The repository can optionally register itself with this property which is an
+     * Integer property defining after how many nodes the target is saved while
+     * content is copied or moved between the JCR repository and the mount by the
+     * workspace. Defaults to 1000.
+     */
+    String MOUNT_TRANSFER_BATCH_SIZE_KEY = "org.apache.sling.jcr.base.RepositoryMount.TRANSFER_BATCH_SIZE";
+
+    /**
+     * The repository can optionally register itself with this property which is an
+     * Integer property defining how many node and property existence checks on the
+     * mount are cached, shared by the sessions with the same principals. The
+     * cache is only used while the mount is observed through an administrative
+     * session of the proxy. If not set or zero, nothing is cached.
+     */
+    String MOUNT_CACHE_SIZE_KEY = "org.apache.sling.jcr.base.RepositoryMount.CACHE_SIZE";
+
+    /**
+     * The repository can optionally register itself with this property which is a
+     * Long property defining the time in milliseconds after which a cached
+     * existence check on the mount expires. Defaults to 60000, zero disables
+     * expiry.
+     */
+    String MOUNT_CACHE_TTL_KEY = "org.apache.sling.jcr.base.RepositoryMount.CACHE_TTL";
+
+    /**
+     * The repository can optionally register itself with this property which is a
+     * Long property defining the time in milliseconds after which a read from the
+     * mount fails. The read itself is interrupted but may keep running on
+     * another thread; until it completes, the mount session is not called
+     * again, so it does not need to support concurrent use. If not set or zero,
+     * reads are not limited in time.
+     */
+    String MOUNT_TIMEOUT_KEY = "org.apache.sling.jcr.base.RepositoryMount.TIMEOUT";
+
+    /**
+     * The repository can optionally register itself with this property which is an
+     * Integer property defining after how many consecutive failed or timed out
+     * calls the mount is considered unavailable. While unavailable, the mount
+     * is not called, its mount points are left out of listings and queries
+     * only return results of the JCR repository. If not set or zero, the mount
+     * is always called.
+     */
+    String MOUNT_FAILURE_THRESHOLD_KEY = "org.apache.sling.jcr.base.RepositoryMount.FAILURE_THRESHOLD";
+
+    /**
+     * The repository can optionally register itself with this property which is a
+     * Long property defining for how many milliseconds the mount is considered
+     * unavailable once the failure threshold is reached. Defaults to 30000.
+     */
+    String MOUNT_UNAVAILABLE_DURATION_KEY = "org.apache.sling.jcr.base.RepositoryMount.UNAVAILABLE_DURATION";
+
+    /**
+     * The repository can optionally register itself with this property which is an
+     * Integer property defining how many child nodes are read ahead in the
+     * background while the children of a mount node are iterated. As the
+     * child nodes are then read on another thread, the sessions of the mount
+     * must allow concurrent use. If not set or zero, child nodes are read when
+     * requested.
+     */
+    String MOUNT_PREFETCH_SIZE_KEY = "org.apache.sling.jcr.base.RepositoryMount.PREFETCH_SIZE";
+
+    /**
+     * The repository can optionally register itself with this property which is a
+     * Boolean property defining whether authorizables created through the user
+     * manager are created on the mount only when the session is saved, instead
+     * of right after they are created in the JCR repository. Defaults to false.
+     */
+    String MOUNT_DEFER_AUTHORIZABLES_KEY = "org.apache.sling.jcr.base.RepositoryMount.DEFER_AUTHORIZABLES";
+
+    /**
+     * The repository can optionally register itself with this property which is an
+     * Integer property defining after how many nodes the mount is saved while the
+     * content of a mount point is removed because an ancestor in the JCR
+     * repository is removed. The content is then removed when the session is
+     * saved, after the JCR repository and the mount are saved. This is not
+     * atomic: if removing the content fails, saving the session again
+     * continues with it. If not set or zero, all nodes are removed in the
+     * pending changes of the session. Not used if the mount sessions are a
+     * {@link BatchRemover}.
+     */
+    String MOUNT_PURGE_BATCH_SIZE_KEY = "org.apache.sling.jcr.base.RepositoryMount.PURGE_BATCH_SIZE";
 }
@@ -26,6 +26,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.nodetype.NodeType;
 
+import org.apache.sling.jcr.base.internal.mount.ProxyRepository;
 import org.apache.sling.jcr.base.spi.RepositoryMount;
 import org.apache.sling.testing.mock.jcr.MockJcr;
 import org.apache.sling.testing.mock.sling.ResourceResolverType;
@@ -124,6 +125,33 @@ public class RepositoryMountTest
         session.logout();
     }
 
+    @Test
+    public void testProxyIsKeptUntilTheMountChanges() throws RepositoryException {
+        Assert.assertTrue(manager.start(context.bundleContext(), "ws", false));
+        Assert.assertNotNull(context.getService(Repository.class));
+
+        Properties props = new Properties();
+        props.put(RepositoryMount.MOUNT_POINTS_KEY, "/mount");
+        ServiceRegistration reg = context.bundleContext().registerService(RepositoryMount.class.getName(), mountRepository, (Dictionary) props);
+
+        Repository proxy = manager.getRepository();
+        Assert.assertNotSame(rootRepository, proxy);
+        Assert.assertSame(proxy, manager.getRepository());
+
+        // only the mount points changed
+        props.put(RepositoryMount.MOUNT_POINTS_KEY, "/mount2");
+        reg.setProperties((Dictionary) props);
+        Assert.assertSame(proxy, manager.getRepository());
+        Assert.assertTrue(((ProxyRepository<?>) proxy).getMountPoints().contains("/mount2"));
+
+        props.put(RepositoryMount.MOUNT_QUERY_CONCURRENCY_KEY, 2);
+        reg.setProperties((Dictionary) props);
+        Assert.assertNotSame(proxy, manager.getRepository());
+
+        reg.unregister();
+        Assert.assertSame(rootRepository, manager.getRepository());
+    }
+
     private void testExists(Session session, String path, String value) throws RepositoryException {
         Assert.assertTrue(session.nodeExists(path));
         Assert.assertTrue(session.nodeExists(path + "/test"));
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.apache.sling.jcr.base.spi.BatchReader;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchNodeIteratorTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() {
+        jcr = mock(Session.class);
+        mount = mock(Session.class, withSettings().extraInterfaces(BatchReader.class));
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testMountNodesAreReadInBatches() throws RepositoryException {
+        BatchReader reader = (BatchReader) mount;
+        Node parent = mock(Node.class);
+        when(parent.getPath()).thenReturn("/content/mount");
+        Node stub1 = mock(Node.class);
+        when(stub1.getPath()).thenReturn("/content/mount/a");
+        Node stub2 = mock(Node.class);
+        when(stub2.getPath()).thenReturn("/content/mount/b");
+        when(parent.getNodes()).thenReturn(new NodeIteratorAdapter(Arrays.asList(stub1, stub2)));
+        when(reader.readNode("/content/mount")).thenReturn(parent);
+        Node child = mock(Node.class);
+        when(child.getPath()).thenReturn("/content/mount/a");
+        // b was removed in the meantime
+        when(reader.readNodes(Arrays.asList("/content/mount/a", "/content/mount/b"))).thenReturn(Collections.singletonMap("/content/mount/a", child));
+
+        NodeIterator children = session.getNode("/content/mount").getNodes();
+        assertTrue(children.hasNext());
+        assertEquals(child, session.unwrap(children.nextNode()));
+        assertFalse(children.hasNext());
+        verify(mount, never()).getNode("/content/mount");
+        verify(reader, times(1)).readNodes(Arrays.asList("/content/mount/a", "/content/mount/b"));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.apache.sling.jcr.base.spi.RepositoryMount;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdentifierRouterTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testIdentifierLookupIsRoutedByPrefix() throws RepositoryException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_IDENTIFIER_PREFIXES_KEY, new String[] {"mount:"});
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+
+        Node mountNode = mock(Node.class);
+        when(mount.getNodeByIdentifier("mount:1")).thenReturn(mountNode);
+        Node jcrNode = mock(Node.class);
+        when(jcr.getNodeByIdentifier("1234")).thenReturn(jcrNode);
+
+        assertEquals(mountNode, session.unwrap(session.getNodeByIdentifier("mount:1")));
+        verify(jcr, never()).getNodeByIdentifier("mount:1");
+
+        assertEquals(jcrNode, session.unwrap(session.getNodeByIdentifier("1234")));
+        verify(mount, never()).getNodeByIdentifier("1234");
+    }
+
+    @Test
+    public void testIdentifierLookupLearnsMountIdentifiers() throws RepositoryException {
+        Node mountNode = mock(Node.class);
+        when(jcr.getNodeByIdentifier("abcd")).thenThrow(new ItemNotFoundException());
+        when(mount.getNodeByIdentifier("abcd")).thenReturn(mountNode);
+
+        assertEquals(mountNode, session.unwrap(session.getNodeByIdentifier("abcd")));
+        assertEquals(mountNode, session.unwrap(session.getNodeByIdentifier("abcd")));
+
+        // only the first lookup probed the jcr repository
+        verify(jcr, times(1)).getNodeByIdentifier("abcd");
+    }
+}
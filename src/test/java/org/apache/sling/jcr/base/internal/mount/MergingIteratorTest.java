@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RangeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.query.Query;
+import javax.jcr.query.Row;
+
+import org.apache.jackrabbit.commons.iterator.RangeIteratorAdapter;
+import org.apache.jackrabbit.commons.iterator.RowIteratorAdapter;
+import org.junit.Test;
+
+public class MergingIteratorTest {
+
+    @Test
+    public void testConcatenation() {
+        MergingIterator<String> iterator = new MergingIterator<>(Arrays.asList(
+                new RangeIteratorAdapter(Arrays.asList("a", "b", "c")),
+                new RangeIteratorAdapter(Arrays.asList("d", "e"))), null);
+        assertEquals(5, iterator.getSize());
+        iterator.skip(3);
+        assertEquals(3, iterator.getPosition());
+        assertEquals("d", iterator.next());
+        assertEquals("e", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testPage() {
+        RangeIterator unused = mock(RangeIterator.class);
+        MergingIterator<String> iterator = new MergingIterator<>(Arrays.asList(
+                new RangeIteratorAdapter(Arrays.asList("a", "b", "c")), unused), null);
+        iterator.page(1, 2);
+        assertEquals(2, iterator.getSize());
+        assertEquals("b", iterator.next());
+        assertEquals("c", iterator.next());
+        assertFalse(iterator.hasNext());
+        // the page is filled by the first iterator
+        verifyNoInteractions(unused);
+
+        iterator = new MergingIterator<>(Arrays.asList(
+                new RangeIteratorAdapter(Arrays.asList("a", "b", "c")),
+                new RangeIteratorAdapter(Arrays.asList("d", "e"))), null);
+        iterator.page(2, 2);
+        assertEquals("c", iterator.next());
+        assertEquals("d", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testOrderedMerge() throws RepositoryException {
+        QueryOrdering ordering = QueryOrdering.parse("SELECT * FROM [nt:base] AS s ORDER BY s.[rank] DESC", Query.JCR_SQL2);
+        assertNotNull(ordering);
+        List<Row> rows = Arrays.asList(row(9), row(5), row(1), row(7), row(5), row(2));
+        MergingIterator<Row> iterator = new MergingIterator<>(Arrays.asList(
+                new RowIteratorAdapter(rows.subList(0, 3)),
+                new RowIteratorAdapter(rows.subList(3, 6))), ordering, ordering);
+        assertEquals(6, iterator.getSize());
+        List<Long> ranks = new ArrayList<>();
+        while (iterator.hasNext()) {
+            ranks.add(iterator.next().getValue("s.rank").getLong());
+        }
+        assertEquals(Arrays.asList(9L, 7L, 5L, 5L, 2L, 1L), ranks);
+        for (Row row : rows) {
+            // the sort key is taken from the column, once per row
+            verify(row, times(2)).getValue("s.rank");
+            verify(row, never()).getNode("s");
+        }
+    }
+
+    @Test
+    public void testOrderingFallsBackToTheNodeAndPropagatesErrors() throws RepositoryException {
+        QueryOrdering ordering = QueryOrdering.parse("SELECT * FROM [nt:base] AS s ORDER BY s.[rank]", Query.JCR_SQL2);
+        Row row1 = row(1);
+        when(row1.getValue("s.rank")).thenThrow(new ItemNotFoundException("s.rank"));
+        Row row2 = row(2);
+        when(row2.getValue("s.rank")).thenThrow(new RepositoryException("connection lost"));
+
+        MergingIterator<Row> iterator = new MergingIterator<>(Arrays.asList(
+                new RowIteratorAdapter(Arrays.asList(row1, row2)),
+                new RowIteratorAdapter(Collections.emptyList())), ordering, ordering);
+        verify(row1.getNode("s")).getProperty("rank");
+        IllegalStateException ex = assertThrows(IllegalStateException.class, iterator::next);
+        assertEquals("connection lost", ex.getCause().getMessage());
+
+        assertThrows(RepositoryException.class, () -> new MergingIterator<>(Arrays.asList(
+                new RowIteratorAdapter(Collections.singletonList(row2))), ordering, ordering));
+    }
+
+    @Test
+    public void testParse() {
+        assertNotNull(QueryOrdering.parse("SELECT * FROM [nt:base] ORDER BY [jcr:title], SCORE() DESC, LOWER(NAME()) OPTION(TRAVERSAL OK)", Query.JCR_SQL2));
+        assertNotNull(QueryOrdering.parse("/jcr:root/content//*[@x = 'order by'] order by @jcr:title descending, jcr:score()", "xpath"));
+        assertNull(QueryOrdering.parse("SELECT * FROM [nt:base] WHERE [x] = 'order by [y]'", Query.JCR_SQL2));
+        assertNull(QueryOrdering.parse("SELECT * FROM [nt:base] ORDER BY LENGTH([x])", Query.JCR_SQL2));
+        assertNull(QueryOrdering.parse("/jcr:root/content//* order by @x random", "xpath"));
+    }
+
+    private static Row row(long rank) throws RepositoryException {
+        Value value = mock(Value.class);
+        when(value.getType()).thenReturn(PropertyType.LONG);
+        when(value.getLong()).thenReturn(rank);
+        Property property = mock(Property.class);
+        when(property.getValue()).thenReturn(value);
+        when(property.getLong()).thenReturn(rank);
+        Node node = mock(Node.class);
+        when(node.hasProperty("rank")).thenReturn(true);
+        when(node.getProperty("rank")).thenReturn(property);
+        Row row = mock(Row.class);
+        when(row.getValue("s.rank")).thenReturn(value);
+        when(row.getNode("s")).thenReturn(node);
+        return row;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+
+import javax.jcr.InvalidItemStateException;
+import javax.jcr.Node;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.apache.sling.jcr.base.spi.RepositoryMount;
+import org.junit.Test;
+
+public class MountCircuitBreakerTest {
+
+    @Test
+    public void testOnlyUnavailabilityCounts() {
+        MountCircuitBreaker breaker = new MountCircuitBreaker(2, 60000);
+        breaker.record(new RepositoryException("timed out", new TimeoutException()));
+        breaker.record(new PathNotFoundException("/content/mount/a"));
+        assertFalse(breaker.isOpen());
+        breaker.record(new InvalidItemStateException("stale", new IOException("connection reset")));
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void testContentErrorsDoNotCloseTheBreaker() {
+        MountCircuitBreaker breaker = new MountCircuitBreaker(1, 60000);
+        breaker.record(new IllegalStateException("disconnected"));
+        assertTrue(breaker.isOpen());
+        breaker.record(new PathNotFoundException("/content/mount/a"));
+        assertTrue(breaker.isOpen());
+        breaker.success();
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void testUnavailableMountIsHidden() throws RepositoryException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_TIMEOUT_KEY, 100L);
+        properties.put(RepositoryMount.MOUNT_FAILURE_THRESHOLD_KEY, 2);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        Session mount = mock(Session.class);
+        ProxySession<Session> session = new ProxySession<>(repository, mock(Session.class), mount, repository.getMountPoints());
+        CountDownLatch release = new CountDownLatch(1);
+        when(mount.nodeExists("/content/mount/a")).thenThrow(new RepositoryException("connection refused"));
+        when(mount.getNode("/content/mount/b")).thenAnswer(invocation -> {
+            release.await();
+            return mock(Node.class);
+        });
+
+        assertThrows(RepositoryException.class, () -> session.nodeExists("/content/mount/a"));
+        // the hanging call times out and opens the breaker
+        assertThrows(RepositoryException.class, () -> session.getNode("/content/mount/b"));
+        release.countDown();
+
+        // the breaker is open, the mount is no longer called
+        assertThrows(RepositoryException.class, () -> session.nodeExists("/content/mount/a"));
+        verify(mount, times(1)).nodeExists("/content/mount/a");
+
+        Node content = mock(Node.class);
+        when(content.getPath()).thenReturn("/content");
+        when(content.hasNodes()).thenReturn(false);
+        assertFalse(session.getNodes("/content", new NodeIteratorAdapter(Collections.emptyIterator())).hasNext());
+        assertFalse(session.hasNodes(content));
+        verify(mount, never()).getNode("/content/mount");
+        assertFalse(session.queryMount(null));
+        assertTrue(session.queryMount("/content/mount/a"));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.RepositoryException;
+
+import org.junit.Test;
+
+public class MountExecutorTest {
+
+    @Test
+    public void testResult() throws Exception {
+        MountExecutor executor = new MountExecutor(1);
+        assertEquals("result", MountExecutor.await(executor.submit(() -> "result"), 1000, "Test"));
+    }
+
+    @Test(expected = ItemNotFoundException.class)
+    public void testException() throws Exception {
+        MountExecutor executor = new MountExecutor(1);
+        MountExecutor.await(executor.submit(() -> {
+            throw new ItemNotFoundException();
+        }), 1000, "Test");
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        MountExecutor executor = new MountExecutor(1);
+        CountDownLatch never = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Future<String> future = executor.submit(() -> {
+            try {
+                never.await();
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return "late";
+        });
+        try {
+            MountExecutor.await(future, 50, "Test");
+            fail();
+        } catch (RepositoryException ex) {
+            assertTrue(future.isCancelled());
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
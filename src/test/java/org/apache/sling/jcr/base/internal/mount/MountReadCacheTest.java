@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.security.AccessControlPolicy;
+
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.apache.jackrabbit.api.JackrabbitWorkspace;
+import org.apache.jackrabbit.api.security.user.Authorizable;
+import org.apache.jackrabbit.api.security.user.Group;
+import org.apache.sling.jcr.base.spi.RepositoryMount;
+import org.junit.Test;
+
+public class MountReadCacheTest {
+    private static final MountReadCache.Principals ALICE = new MountReadCache.Principals(Collections.singleton("alice"));
+    private static final MountReadCache.Principals BOB = new MountReadCache.Principals(Collections.singleton("bob"));
+
+    @Test
+    public void testSubtreeIsInvalidated() {
+        MountReadCache cache = new MountReadCache(100, 0);
+        cache.putNode(ALICE, "/content/mount/a", true);
+        cache.putNode(BOB, "/content/mount/a/b", false);
+        cache.putProperty(ALICE, "/content/mount/a/b/title", true);
+        cache.putNode(ALICE, "/content/mount/ab", false);
+
+        cache.invalidate(Collections.singleton("/content/mount/a"));
+        assertNull(cache.nodeExists(ALICE, "/content/mount/a"));
+        assertNull(cache.nodeExists(BOB, "/content/mount/a/b"));
+        assertNull(cache.propertyExists(ALICE, "/content/mount/a/b/title"));
+        // a sibling with a common prefix is kept
+        assertEquals(Boolean.FALSE, cache.nodeExists(ALICE, "/content/mount/ab"));
+
+        cache.invalidate(Collections.singleton("/"));
+        assertNull(cache.nodeExists(ALICE, "/content/mount/ab"));
+    }
+
+    @Test
+    public void testEntriesAreKeyedByPrincipals() {
+        MountReadCache cache = new MountReadCache(100, 0);
+        cache.putNode(ALICE, "/content/mount/a", true);
+        assertEquals(Boolean.TRUE, cache.nodeExists(new MountReadCache.Principals(Collections.singleton("alice")), "/content/mount/a"));
+        assertNull(cache.nodeExists(BOB, "/content/mount/a"));
+    }
+
+    @Test
+    public void testEvictedEntriesAreInvalidatedOnce() {
+        MountReadCache cache = new MountReadCache(2, 0);
+        cache.putNode(ALICE, "/content/mount/a", true);
+        cache.putNode(ALICE, "/content/mount/b", true);
+        cache.putNode(ALICE, "/content/mount/c", true);
+        assertNull(cache.nodeExists(ALICE, "/content/mount/a"));
+
+        cache.putNode(ALICE, "/content/mount/a", false);
+        cache.invalidate(Collections.singleton("/content/mount/b"));
+        assertEquals(Boolean.FALSE, cache.nodeExists(ALICE, "/content/mount/a"));
+        assertNull(cache.nodeExists(ALICE, "/content/mount/b"));
+    }
+
+    @Test
+    public void testSegmentsAreInvalidatedTogether() {
+        MountReadCache cache = new MountReadCache(MountReadCache.SEGMENT_SIZE * 4, 0);
+        for (int i = 0; i < MountReadCache.SEGMENT_SIZE; i++) {
+            cache.putNode(ALICE, "/content/mount/a/" + i, true);
+            cache.putNode(BOB, "/content/mount/b/" + i, true);
+        }
+        cache.invalidate(Collections.singleton("/content/mount/a"));
+        for (int i = 0; i < MountReadCache.SEGMENT_SIZE; i++) {
+            assertNull(cache.nodeExists(ALICE, "/content/mount/a/" + i));
+            assertEquals(Boolean.TRUE, cache.nodeExists(BOB, "/content/mount/b/" + i));
+        }
+    }
+
+    @Test
+    public void testPolicyWritesInvalidateTheirPath() throws RepositoryException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_CACHE_SIZE_KEY, 100);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        repository.setSystemLogin(() -> new ProxySession<>(repository, mock(Session.class), mock(Session.class, RETURNS_DEEP_STUBS), repository.getMountPoints()));
+        Session mount = mock(Session.class, RETURNS_DEEP_STUBS);
+        ProxySession<?> session = new ProxyJackrabbitSession(repository, user("alice", "editors"), mount, repository.getMountPoints());
+
+        assertFalse(session.nodeExists("/content/mount/a/rep:policy"));
+        assertFalse(session.nodeExists("/content/mount/b"));
+        session.getAccessControlManager().setPolicy("/content/mount/a", mock(AccessControlPolicy.class));
+        session.save();
+        assertFalse(session.nodeExists("/content/mount/a/rep:policy"));
+        assertFalse(session.nodeExists("/content/mount/b"));
+        verify(mount, times(2)).nodeExists("/content/mount/a/rep:policy");
+        // entries outside of the written path are kept
+        verify(mount, times(1)).nodeExists("/content/mount/b");
+    }
+
+    @Test
+    public void testFailedSystemLoginIsRetriedAfterBackoff() throws RepositoryException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_CACHE_SIZE_KEY, 100);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        Session systemMount = mock(Session.class, RETURNS_DEEP_STUBS);
+        ProxyRepository.SystemLogin login = mock(ProxyRepository.SystemLogin.class);
+        when(login.login()).thenThrow(new RepositoryException("not yet"))
+                .thenAnswer(invocation -> new ProxySession<>(repository, mock(Session.class), systemMount, repository.getMountPoints()));
+        repository.setSystemLogin(login);
+
+        assertNull(repository.getReadCache());
+        // no new attempt while backing off
+        assertNull(repository.getReadCache());
+        verify(login, times(1)).login();
+
+        repository.systemLoginRetry = 0;
+        assertNotNull(repository.getReadCache());
+        assertNotNull(repository.getReadCache());
+        verify(login, times(2)).login();
+        verify(systemMount.getWorkspace().getObservationManager()).addEventListener(any(), anyInt(), eq("/"), eq(true), any(), any(), eq(false));
+    }
+
+    @Test
+    public void testMountExistenceIsCachedAcrossSessions() throws RepositoryException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_CACHE_SIZE_KEY, 100);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        Session systemMount = mock(Session.class, RETURNS_DEEP_STUBS);
+        repository.setSystemLogin(() -> new ProxySession<>(repository, mock(Session.class), systemMount, repository.getMountPoints()));
+        Session mount1 = mock(Session.class);
+        Session mount2 = mock(Session.class);
+        Session mount3 = mock(Session.class);
+        ProxySession<?> session1 = new ProxyJackrabbitSession(repository, user("alice", "editors"), mount1, repository.getMountPoints());
+        ProxySession<?> session2 = new ProxyJackrabbitSession(repository, user("alice", "editors"), mount2, repository.getMountPoints());
+        ProxySession<?> session3 = new ProxyJackrabbitSession(repository, user("alice", "readers"), mount3, repository.getMountPoints());
+
+        assertFalse(session1.nodeExists("/content/mount/a"));
+        assertFalse(session2.nodeExists("/content/mount/a"));
+        assertFalse(session3.nodeExists("/content/mount/a"));
+        verify(mount1, times(1)).nodeExists("/content/mount/a");
+        // a session of the same user with other principals does not share entries
+        verify(mount2, never()).nodeExists("/content/mount/a");
+        verify(mount3, times(1)).nodeExists("/content/mount/a");
+        // the mount is observed through the session of the proxy
+        verify(systemMount.getWorkspace().getObservationManager()).addEventListener(any(), anyInt(), eq("/"), eq(true), any(), any(), eq(false));
+
+        // a saved write invalidates the subtree for all sessions
+        when(mount1.getNode("/content/mount")).thenReturn(mock(Node.class));
+        session1.addNode("/content/mount", "/content/mount/a", "a");
+        session1.save();
+        when(mount2.nodeExists("/content/mount/a")).thenReturn(true);
+        session2.refresh(true);
+        assertTrue(session2.nodeExists("/content/mount/a"));
+
+        // as do workspace writes
+        when(mount2.getWorkspace()).thenReturn(mock(JackrabbitWorkspace.class));
+        when(((Session) session2.jcr).getWorkspace()).thenReturn(mock(JackrabbitWorkspace.class));
+        assertFalse(session2.nodeExists("/content/mount/b"));
+        session2.getWorkspace().copy("/content/mount/a", "/content/mount/b");
+        assertFalse(session2.nodeExists("/content/mount/b"));
+        verify(mount2, times(2)).nodeExists("/content/mount/b");
+
+        repository.close();
+        verify(systemMount).logout();
+    }
+
+    private static JackrabbitSession user(String userID, String group) throws RepositoryException {
+        JackrabbitSession session = mock(JackrabbitSession.class, RETURNS_DEEP_STUBS);
+        when(session.getUserID()).thenReturn(userID);
+        Authorizable user = session.getUserManager().getAuthorizable(userID);
+        when(user.getPrincipal().getName()).thenReturn(userID);
+        Group member = mock(Group.class, RETURNS_DEEP_STUBS);
+        when(member.getPrincipal().getName()).thenReturn(group);
+        when(user.memberOf()).thenReturn(Collections.singletonList(member).iterator());
+        return session;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.apache.jackrabbit.commons.xml.SerializingContentHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+public class MountSplicingHandlerTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class),
+                new HashSet<>(Arrays.asList("/content/a", "/content/b")));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testDocumentViewSplicesMountPoints() throws Exception {
+        // the JCR node at /content/a is replaced, /content/b only exists on the mount
+        doAnswer(invocation -> {
+            ContentHandler handler = invocation.getArgument(1);
+            handler.startDocument();
+            start(handler, "content");
+            start(handler, "a");
+            start(handler, "hidden");
+            end(handler, "hidden");
+            end(handler, "a");
+            start(handler, "c");
+            end(handler, "c");
+            end(handler, "content");
+            handler.endDocument();
+            return null;
+        }).when(jcr).exportDocumentView(eq("/content"), any(ContentHandler.class), anyBoolean(), anyBoolean());
+        doAnswer(invocation -> {
+            ContentHandler handler = invocation.getArgument(1);
+            String name = ((String) invocation.getArgument(0)).substring("/content/".length());
+            handler.startDocument();
+            start(handler, name);
+            start(handler, "mounted");
+            end(handler, "mounted");
+            end(handler, name);
+            handler.endDocument();
+            return null;
+        }).when(mount).exportDocumentView(any(String.class), any(ContentHandler.class), anyBoolean(), anyBoolean());
+
+        StringWriter writer = new StringWriter();
+        session.exportDocumentView("/content", SerializingContentHandler.getSerializer(writer), false, false);
+
+        assertEquals("<content><a><mounted/></a><c/><b><mounted/></b></content>",
+                writer.toString().replaceAll("<\\?xml[^>]*\\?>", "").trim());
+    }
+
+    private static void start(ContentHandler handler, String name) throws SAXException {
+        handler.startElement("", name, name, new AttributesImpl());
+    }
+
+    private static void end(ContentHandler handler, String name) throws SAXException {
+        handler.endElement("", name, name);
+    }
+}
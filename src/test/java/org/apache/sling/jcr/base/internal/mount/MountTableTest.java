@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class MountTableTest {
+
+    private final MountTable table = new MountTable(new HashSet<>(Arrays.asList("/content/mount", "/content/dam/mount")));
+
+    @Test
+    public void testIsMount() {
+        assertTrue(table.isMount("/content/mount"));
+        assertTrue(table.isMount("/content/mount/a/b"));
+        assertFalse(table.isMount("/content/mount2"));
+        assertFalse(table.isMount("/content"));
+        assertFalse(table.isMount(null));
+    }
+
+    @Test
+    public void testParents() {
+        assertTrue(table.isMountParent("/"));
+        assertTrue(table.isMountParent("/content/dam"));
+        assertFalse(table.isMountParent("/content/mount"));
+        assertFalse(table.isMountParent("/content/da"));
+        assertTrue(table.isMountDirectParent("/content"));
+        assertFalse(table.isMountDirectParent("/"));
+        assertEquals(Collections.singletonList("/content/mount"), table.getMountPoints("/content"));
+        assertEquals(Collections.emptyList(), table.getMountPoints("/apps"));
+        assertEquals(2, table.getMountPointsBelow("/").size());
+        assertEquals(Collections.singletonList("/content/dam/mount"), table.getMountPointsBelow("/content/dam"));
+        assertEquals(Collections.emptyList(), table.getMountPointsBelow("/content/mount"));
+    }
+
+    @Test
+    public void testRootMount() {
+        MountTable root = new MountTable(Collections.singleton("/"));
+        assertTrue(root.isMount("/"));
+        assertTrue(root.isMount("/content"));
+    }
+}
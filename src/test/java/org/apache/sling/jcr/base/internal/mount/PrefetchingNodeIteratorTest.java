@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jcr.Node;
+
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.junit.Test;
+
+public class PrefetchingNodeIteratorTest {
+
+    private final MountExecutor executor = new MountExecutor(2, false);
+
+    private static List<Node> nodes(int count) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(mock(Node.class));
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testIteratesInOrder() {
+        List<Node> nodes = nodes(5);
+        PrefetchingNodeIterator iter = new PrefetchingNodeIterator(new NodeIteratorAdapter(nodes), executor, 2, 1000);
+
+        assertEquals(5, iter.getSize());
+        for (Node node : nodes) {
+            assertTrue(iter.hasNext());
+            assertSame(node, iter.nextNode());
+        }
+        assertFalse(iter.hasNext());
+        assertEquals(5, iter.getPosition());
+    }
+
+    @Test
+    public void testSkip() {
+        List<Node> nodes = nodes(6);
+        PrefetchingNodeIterator iter = new PrefetchingNodeIterator(new NodeIteratorAdapter(nodes), executor, 2, 1000);
+
+        iter.skip(3);
+        assertSame(nodes.get(3), iter.nextNode());
+        assertEquals(4, iter.getPosition());
+    }
+
+    @Test
+    public void testReadsAtMostTwoBatchesAhead() {
+        NodeIteratorAdapter source = new NodeIteratorAdapter(nodes(100));
+        PrefetchingNodeIterator iter = new PrefetchingNodeIterator(source, executor, 10, 1000);
+
+        // the second batch is in use, only the third one is read ahead
+        for (int i = 0; i < 11; i++) {
+            iter.nextNode();
+        }
+        assertTrue(source.getPosition() <= 30);
+    }
+}
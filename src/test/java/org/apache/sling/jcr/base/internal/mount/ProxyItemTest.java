@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProxyItemTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testParentsAreResolvedOnlyAtMountPoints() throws RepositoryException {
+        Node root = mock(Node.class);
+        when(root.getPath()).thenReturn("/content/mount");
+        Node child = mock(Node.class);
+        when(child.getPath()).thenReturn("/content/mount/a");
+        when(child.getParent()).thenReturn(root);
+        when(child.getAncestor(2)).thenReturn(root);
+        Node content = mock(Node.class);
+        when(content.getPath()).thenReturn("/content");
+        when(jcr.getNode("/content")).thenReturn(content);
+
+        Node parent = session.wrap(child).getParent();
+        assertEquals(root, session.unwrap(parent));
+        assertEquals(root, session.unwrap(session.wrap(child).getAncestor(2)));
+        verify(mount, never()).getNode(any());
+
+        assertEquals(content, session.unwrap(parent.getParent()));
+        verify(root, never()).getParent();
+        verify(jcr).getNode("/content");
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.UnsupportedRepositoryOperationException;
+import javax.jcr.Workspace;
+import javax.jcr.lock.LockException;
+import javax.jcr.lock.LockManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProxyLockManagerTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testUnsupportedMountLockingIsReported() throws RepositoryException {
+        Workspace jcrWorkspace = mock(Workspace.class);
+        Workspace mountWorkspace = mock(Workspace.class);
+        when(jcr.getWorkspace()).thenReturn(jcrWorkspace);
+        when(mount.getWorkspace()).thenReturn(mountWorkspace);
+        when(jcrWorkspace.getLockManager()).thenReturn(mock(LockManager.class));
+        when(mountWorkspace.getLockManager()).thenThrow(new UnsupportedRepositoryOperationException());
+
+        LockManager locks = session.getWorkspace().getLockManager();
+        assertThrows(UnsupportedRepositoryOperationException.class, () -> locks.lock("/content/mount/a", false, true, Long.MAX_VALUE, null));
+    }
+
+    @Test
+    public void testLockTokenIsAddedWhereAccepted() throws RepositoryException {
+        Workspace jcrWorkspace = mock(Workspace.class);
+        Workspace mountWorkspace = mock(Workspace.class);
+        when(jcr.getWorkspace()).thenReturn(jcrWorkspace);
+        when(mount.getWorkspace()).thenReturn(mountWorkspace);
+        LockManager jcrLocks = mock(LockManager.class);
+        LockManager mountLocks = mock(LockManager.class);
+        when(jcrWorkspace.getLockManager()).thenReturn(jcrLocks);
+        when(mountWorkspace.getLockManager()).thenReturn(mountLocks);
+        doThrow(new LockException("unknown token")).when(mountLocks).addLockToken("jcr-token");
+        doThrow(new LockException("unknown token")).when(jcrLocks).addLockToken("mount-token");
+        doThrow(new LockException("unknown token")).when(jcrLocks).addLockToken("other-token");
+        doThrow(new LockException("unknown token")).when(mountLocks).addLockToken("other-token");
+        when(jcrLocks.getLockTokens()).thenReturn(new String[] {"jcr-token"});
+        when(mountLocks.getLockTokens()).thenReturn(new String[] {"mount-token"});
+
+        LockManager locks = session.getWorkspace().getLockManager();
+        locks.addLockToken("jcr-token");
+        locks.addLockToken("mount-token");
+        verify(jcrLocks, never()).removeLockToken(any());
+        verify(mountLocks, never()).removeLockToken(any());
+        // only a token neither accepts is rejected
+        LockException ex = assertThrows(LockException.class, () -> locks.addLockToken("other-token"));
+        assertEquals(1, ex.getSuppressed().length);
+
+        // the session holds the tokens of both
+        session.addLockToken("jcr-token");
+        verify(jcrLocks, times(2)).addLockToken("jcr-token");
+        assertArrayEquals(new String[] {"jcr-token", "mount-token"}, session.getLockTokens());
+        session.removeLockToken("mount-token");
+        verify(mountLocks).removeLockToken("mount-token");
+        verify(jcr, never()).getLockTokens();
+    }
+}
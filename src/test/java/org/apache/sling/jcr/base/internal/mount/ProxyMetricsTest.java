@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProxyMetricsTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testCallsAreRecordedPerBackend() throws RepositoryException {
+        Node node = mock(Node.class);
+        when(node.getPath()).thenReturn("/content/mount/child");
+        when(mount.getNode("/content/mount/child")).thenReturn(node);
+        when(jcr.nodeExists("/content/site")).thenReturn(true);
+
+        session.getNode("/content/mount/child").setProperty("title", "value");
+        session.nodeExists("/content/site");
+        session.save();
+
+        Map<String, Long> metrics = session.repository.getMetrics();
+        assertEquals(Long.valueOf(1), metrics.get("mount.read.calls"));
+        assertEquals(Long.valueOf(1), metrics.get("mount.write.calls"));
+        assertEquals(Long.valueOf(1), metrics.get("mount.save.calls"));
+        assertEquals(Long.valueOf(1), metrics.get("jcr.read.calls"));
+        assertEquals(Long.valueOf(0), metrics.get("jcr.save.calls"));
+        assertEquals("1", session.repository.getDescriptor(ProxyRepository.METRICS_DESCRIPTOR_PREFIX + "mount.save.calls"));
+    }
+}
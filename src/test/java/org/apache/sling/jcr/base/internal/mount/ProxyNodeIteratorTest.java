@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProxyNodeIteratorTest {
+
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() {
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, mock(Session.class), mock(Session.class), repository.getMountPoints());
+    }
+
+    @Test
+    public void testNodesAreWrappedOnAccess() throws RepositoryException {
+        Node node = mock(Node.class);
+        NodeIterator nodes = session.wrap((NodeIterator) new NodeIteratorAdapter(Arrays.asList(node, node)));
+        assertEquals(2, nodes.getSize());
+        assertTrue(nodes.nextNode() instanceof ProxyNode);
+        assertSame(nodes, session.wrap(nodes));
+    }
+}
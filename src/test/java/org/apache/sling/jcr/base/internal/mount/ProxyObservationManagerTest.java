@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.apache.jackrabbit.api.JackrabbitWorkspace;
+import org.apache.jackrabbit.api.observation.JackrabbitEventFilter;
+import org.apache.jackrabbit.api.observation.JackrabbitObservationManager;
+import org.apache.jackrabbit.commons.iterator.EventIteratorAdapter;
+import org.apache.sling.jcr.base.spi.RepositoryMount;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ProxyObservationManagerTest {
+    private final ObservationManager jcr = mock(ObservationManager.class);
+    private final ObservationManager mount = mock(ObservationManager.class);
+
+    private ProxyObservationManager create(long eventDelay) {
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class),
+                Collections.singleton("/content/mount"), Collections.singletonMap(RepositoryMount.MOUNT_EVENT_DELAY_KEY, eventDelay));
+        ProxySession<Session> session = new ProxySession<>(repository, mock(Session.class), mock(Session.class), repository.getMountPoints());
+        return new ProxyObservationManager(session, jcr, mount);
+    }
+
+    @Test
+    public void testListenersAreRegisteredForTheirScope() throws RepositoryException {
+        ProxyObservationManager manager = create(0);
+        List<String> paths = new ArrayList<>();
+        EventListener listener = events -> {
+            while (events.hasNext()) {
+                try {
+                    paths.add(events.nextEvent().getPath());
+                } catch (RepositoryException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+        manager.addEventListener(listener, Event.PROPERTY_CHANGED, "/content", true, null, null, false);
+
+        ArgumentCaptor<EventListener> jcrListener = ArgumentCaptor.forClass(EventListener.class);
+        ArgumentCaptor<EventListener> mountListener = ArgumentCaptor.forClass(EventListener.class);
+        verify(jcr).addEventListener(jcrListener.capture(), anyInt(), eq("/content"), anyBoolean(), any(), any(), anyBoolean());
+        verify(mount).addEventListener(mountListener.capture(), anyInt(), eq("/content"), anyBoolean(), any(), any(), anyBoolean());
+
+        jcrListener.getValue().onEvent(events(event("/content/a/x"), event("/content/mount/hidden")));
+        mountListener.getValue().onEvent(events(event("/content/mount/b/x"), event("/content/b/y"), event("/content/mount/b/x")));
+        assertEquals(Arrays.asList("/content/a/x", "/content/mount/b/x"), paths);
+
+        manager.addEventListener(mock(EventListener.class), Event.PROPERTY_CHANGED, "/content/mount/b", true, null, null, false);
+        verify(jcr, never()).addEventListener(any(), anyInt(), eq("/content/mount/b"), anyBoolean(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void testMountEventsAreCoalesced() throws Exception {
+        ProxyObservationManager manager = create(500);
+        List<Integer> batches = new ArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        manager.addEventListener(events -> {
+            batches.add((int) events.getSize());
+            delivered.countDown();
+        }, Event.PROPERTY_CHANGED, "/content/mount", true, null, null, false);
+
+        ArgumentCaptor<EventListener> mountListener = ArgumentCaptor.forClass(EventListener.class);
+        verify(mount).addEventListener(mountListener.capture(), anyInt(), eq("/content/mount"), anyBoolean(), any(), any(), anyBoolean());
+        for (int i = 0; i < 10; i++) {
+            mountListener.getValue().onEvent(events(event("/content/mount/a/x"), event("/content/mount/a/y")));
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(2), batches);
+    }
+
+    @Test
+    public void testJackrabbitFilterPathsAreSplit() throws RepositoryException {
+        JackrabbitObservationManager jcr = mock(JackrabbitObservationManager.class);
+        JackrabbitObservationManager mount = mock(JackrabbitObservationManager.class);
+        JackrabbitSession jcrSession = session(jcr);
+        JackrabbitSession mountSession = session(mount);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        ProxyJackrabbitSession session = new ProxyJackrabbitSession(repository, jcrSession, mountSession, repository.getMountPoints());
+
+        JackrabbitObservationManager manager = (JackrabbitObservationManager) session.getWorkspace().getObservationManager();
+        manager.addEventListener(mock(EventListener.class), new JackrabbitEventFilter()
+                .setEventTypes(Event.NODE_ADDED)
+                .setAbsPath("/content/site")
+                .setAdditionalPaths("/content/mount/a", "/libs")
+                .setIsDeep(true)
+                .setNoExternal(true));
+
+        ArgumentCaptor<JackrabbitEventFilter> jcrFilter = ArgumentCaptor.forClass(JackrabbitEventFilter.class);
+        ArgumentCaptor<JackrabbitEventFilter> mountFilter = ArgumentCaptor.forClass(JackrabbitEventFilter.class);
+        verify(jcr).addEventListener(any(), jcrFilter.capture());
+        verify(mount).addEventListener(any(), mountFilter.capture());
+        assertEquals("/content/site", jcrFilter.getValue().getAbsPath());
+        assertEquals(Collections.singletonList("/libs"), Arrays.asList(jcrFilter.getValue().getAdditionalPaths()));
+        assertTrue(jcrFilter.getValue().getNoExternal());
+        assertEquals("/content/mount/a", mountFilter.getValue().getAbsPath());
+        assertEquals(0, mountFilter.getValue().getAdditionalPaths().length);
+        assertEquals(Event.NODE_ADDED, mountFilter.getValue().getEventTypes());
+    }
+
+    private static JackrabbitSession session(JackrabbitObservationManager manager) throws RepositoryException {
+        JackrabbitWorkspace workspace = mock(JackrabbitWorkspace.class);
+        when(workspace.getObservationManager()).thenReturn(manager);
+        JackrabbitSession session = mock(JackrabbitSession.class);
+        when(session.getWorkspace()).thenReturn(workspace);
+        return session;
+    }
+
+    private static EventIteratorAdapter events(Event... events) {
+        return new EventIteratorAdapter(Arrays.asList(events));
+    }
+
+    private static Event event(String path) throws RepositoryException {
+        Event event = mock(Event.class);
+        when(event.getType()).thenReturn(Event.PROPERTY_CHANGED);
+        when(event.getPath()).thenReturn(path);
+        return event;
+    }
+}
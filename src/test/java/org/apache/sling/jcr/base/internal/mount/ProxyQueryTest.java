@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+
+import org.apache.jackrabbit.commons.iterator.RowIteratorAdapter;
+import org.apache.sling.jcr.base.spi.RepositoryMount;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProxyQueryTest {
+
+    private ProxySession<Session> session;
+    private Query jcrQuery;
+    private Query mountQuery;
+
+    @Before
+    public void setup() throws RepositoryException {
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, mock(Session.class), mock(Session.class), repository.getMountPoints());
+        jcrQuery = mock(Query.class);
+        mountQuery = mock(Query.class);
+        when(jcrQuery.getStatement()).thenReturn("SELECT * FROM [nt:base]");
+        when(jcrQuery.getLanguage()).thenReturn(Query.JCR_SQL2);
+    }
+
+    @Test
+    public void testMountRowsAreOnlyReadIfThePageIsNotFilled() throws RepositoryException {
+        QueryResult jcrResult = mock(QueryResult.class);
+        when(jcrResult.getRows()).thenReturn(new RowIteratorAdapter(Arrays.asList(mock(Row.class), mock(Row.class))));
+        RowIterator mountRows = mock(RowIterator.class);
+        QueryResult mountResult = mock(QueryResult.class);
+        when(mountResult.getRows()).thenReturn(mountRows);
+        when(jcrQuery.execute()).thenReturn(jcrResult);
+        when(mountQuery.execute()).thenReturn(mountResult);
+
+        ProxyQuery query = new ProxyQuery(session, jcrQuery, mountQuery);
+        query.setOffset(1);
+        query.setLimit(1);
+        RowIterator rows = query.execute().getRows();
+        verify(jcrQuery).setLimit(2);
+        verify(mountQuery).setLimit(2);
+        verify(jcrQuery, never()).setOffset(1);
+        assertEquals(1, rows.getSize());
+        rows.nextRow();
+        assertFalse(rows.hasNext());
+        verifyNoInteractions(mountRows);
+    }
+
+    @Test
+    public void testMountFailureIsReportedByExecute() throws RepositoryException {
+        when(jcrQuery.execute()).thenReturn(mock(QueryResult.class));
+        when(mountQuery.execute()).thenThrow(new RepositoryException("mount unavailable"));
+
+        ProxyQuery query = new ProxyQuery(session, jcrQuery, mountQuery);
+        query.setLimit(10);
+        RepositoryException ex = assertThrows(RepositoryException.class, query::execute);
+        assertEquals("mount unavailable", ex.getMessage());
+    }
+
+    @Test
+    public void testSessionIsNotUsedWhileATimedOutQueryRuns() throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_QUERY_CONCURRENCY_KEY, 1);
+        properties.put(RepositoryMount.MOUNT_QUERY_TIMEOUT_KEY, 50L);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        Session mount = mock(Session.class);
+        session = new ProxySession<>(repository, mock(Session.class), mount, repository.getMountPoints());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        when(jcrQuery.execute()).thenReturn(mock(QueryResult.class));
+        when(mountQuery.execute()).thenAnswer(invocation -> {
+            // a mount that ignores the interrupt
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException ignore) {
+                    // keep waiting
+                }
+            }
+            completed.countDown();
+            return mock(QueryResult.class);
+        });
+        when(mount.nodeExists("/content/mount/a")).thenReturn(true);
+
+        ProxyQuery query = new ProxyQuery(session, jcrQuery, mountQuery);
+        assertTrue(assertThrows(RepositoryException.class, query::execute).getMessage().contains("timed out"));
+        RepositoryException ex = assertThrows(RepositoryException.class, () -> session.nodeExists("/content/mount/a"));
+        assertTrue(ex.getMessage().contains("still running"));
+        verify(mount, never()).nodeExists("/content/mount/a");
+
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        // the timed out query is done a moment after it returned its result
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                assertTrue(session.nodeExists("/content/mount/a"));
+                break;
+            } catch (RepositoryException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.yield();
+            }
+        }
+        repository.close();
+    }
+}
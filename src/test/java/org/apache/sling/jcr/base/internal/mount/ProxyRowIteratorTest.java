@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+
+import org.apache.jackrabbit.commons.iterator.RowIteratorAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProxyRowIteratorTest {
+
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() {
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, mock(Session.class), mock(Session.class), repository.getMountPoints());
+    }
+
+    @Test
+    public void testRowNodesAreWrappedOnAccess() throws RepositoryException {
+        Node node = mock(Node.class);
+        Row row = mock(Row.class);
+        when(row.getPath()).thenReturn("/content/site");
+        when(row.getNode()).thenReturn(node);
+        RowIterator rows = session.wrap((RowIterator) new RowIteratorAdapter(Collections.singletonList(row)));
+        Row proxy = rows.nextRow();
+        assertEquals("/content/site", proxy.getPath());
+        verify(row, never()).getNode();
+        assertEquals(node, session.unwrap(proxy.getNode()));
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.Node;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.ValueFactory;
+import javax.jcr.nodetype.NodeType;
+
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.apache.jackrabbit.api.security.user.UserManager;
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.apache.jackrabbit.commons.iterator.PropertyIteratorAdapter;
+import org.apache.sling.jcr.base.spi.BatchRemover;
+import org.apache.sling.jcr.base.spi.RepositoryMount;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class ProxySessionTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testSaveWithoutChangesSkipsBothSides() throws RepositoryException {
+        session.save();
+        verify(jcr, never()).save();
+        verify(mount, never()).save();
+    }
+
+    @Test
+    public void testChangesAroundTheProxyAreSaved() throws RepositoryException {
+        JackrabbitSession jackrabbit = mock(JackrabbitSession.class);
+        JackrabbitSession mountSession = mock(JackrabbitSession.class);
+        when(jackrabbit.getUserManager()).thenReturn(mock(UserManager.class));
+        when(mountSession.getUserManager()).thenReturn(mock(UserManager.class));
+        ProxyJackrabbitSession proxy = new ProxyJackrabbitSession(session.repository, jackrabbit, mountSession, session.repository.getMountPoints());
+
+        // handing out the user manager alone is no change, and lookups are still cached
+        proxy.getUserManager();
+        assertFalse(proxy.hasPendingChanges());
+        assertFalse(proxy.nodeExists("/home/users/a"));
+        assertFalse(proxy.nodeExists("/home/users/a"));
+        verify(jackrabbit, times(1)).nodeExists("/home/users/a");
+        proxy.save();
+        verify(jackrabbit, never()).save();
+
+        // an authorizable modified directly is
+        when(jackrabbit.hasPendingChanges()).thenReturn(true);
+        assertTrue(proxy.hasPendingChanges());
+        proxy.save();
+        verify(jackrabbit).save();
+        verify(mountSession, never()).hasPendingChanges();
+    }
+
+    @Test
+    public void testSaveOnlyTouchesModifiedSide() throws RepositoryException {
+        Node node = mock(Node.class);
+        when(node.getPath()).thenReturn("/content/site");
+        when(jcr.getNode("/content/site")).thenReturn(node);
+
+        session.getNode("/content/site").setProperty("title", "value");
+        session.save();
+
+        verify(jcr).save();
+        verify(mount, never()).save();
+
+        // a second save has nothing left to do
+        session.save();
+        verify(jcr).save();
+    }
+
+    @Test
+    public void testRemoveOfMountParentTouchesBothSides() throws RepositoryException {
+        Node mountRoot = mock(Node.class);
+        when(mountRoot.getNodes()).thenReturn(new NodeIteratorAdapter(Collections.emptyIterator()));
+        when(mount.getNode("/content/mount")).thenReturn(mountRoot);
+
+        session.removeItem("/content");
+        session.save();
+
+        verify(jcr).save();
+        verify(mount).save();
+    }
+
+    @Test
+    public void testHasPendingChangesAndRefresh() throws RepositoryException {
+        Node node = mock(Node.class);
+        when(node.getPath()).thenReturn("/content/mount/child");
+        when(mount.getNode("/content/mount/child")).thenReturn(node);
+        when(mount.hasPendingChanges()).thenReturn(true);
+
+        assertFalse(session.hasPendingChanges());
+        session.getNode("/content/mount/child").setProperty("title", "value");
+        assertTrue(session.hasPendingChanges());
+
+        session.refresh(false);
+        verify(jcr).refresh(false);
+        verify(mount).refresh(false);
+        assertFalse(session.hasPendingChanges());
+
+        session.refresh(true);
+        verify(mount, never()).refresh(true);
+
+        // an unmodified mount is refreshed too, to see changes made by others
+        session.refresh(false);
+        verify(mount, times(2)).refresh(false);
+    }
+
+    @Test
+    public void testMissingPathsAreRememberedUntilWrite() throws RepositoryException {
+        ProxyRepository<?> repository = session.repository;
+        when(jcr.nodeExists("/content/site.html")).thenReturn(false);
+
+        assertFalse(session.nodeExists("/content/site.html"));
+        assertFalse(session.nodeExists("/content/site.html"));
+        assertFalse(session.itemExists("/content/site.html"));
+        verify(jcr, times(1)).nodeExists("/content/site.html");
+        verify(jcr, times(1)).itemExists("/content/site.html");
+        assertEquals(1, repository.getNegativeLookupHits());
+
+        Node parent = mock(Node.class);
+        when(jcr.getNode("/content")).thenReturn(parent);
+        session.addNode("/content", "/content/site.html", "site.html");
+        when(jcr.nodeExists("/content/site.html")).thenReturn(true);
+        assertTrue(session.nodeExists("/content/site.html"));
+    }
+
+    @Test
+    public void testSessionIsNotUsedWhileATimedOutCallRuns() throws Exception {
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class),
+                Collections.singleton("/content/mount"), Collections.singletonMap(RepositoryMount.MOUNT_TIMEOUT_KEY, 50L));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        when(mount.getNode("/content/mount/b")).thenAnswer(invocation -> {
+            // a mount that ignores the interrupt
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException ignore) {
+                    // keep waiting
+                }
+            }
+            completed.countDown();
+            return mock(Node.class);
+        });
+        when(mount.nodeExists("/content/mount/c")).thenReturn(true);
+
+        assertThrows(RepositoryException.class, () -> session.getNode("/content/mount/b"));
+        RepositoryException ex = assertThrows(RepositoryException.class, () -> session.nodeExists("/content/mount/c"));
+        assertTrue(ex.getMessage().contains("still running"));
+        verify(mount, never()).nodeExists("/content/mount/c");
+
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(waitForMount(() -> session.nodeExists("/content/mount/c")));
+    }
+
+    private static boolean waitForMount(MountExecutor.Call<Boolean> call) throws RepositoryException {
+        // the timed out call is done a moment after it returned its result
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                return call.call();
+            } catch (RepositoryException ex) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw ex;
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    @Test
+    public void testOrNullLookupsCallTheBackendOnce() throws RepositoryException {
+        JackrabbitSession jackrabbit = mock(JackrabbitSession.class);
+        ProxyJackrabbitSession proxy = new ProxyJackrabbitSession(session.repository, jackrabbit, mount, session.repository.getMountPoints());
+        Node node = mock(Node.class);
+        when(jackrabbit.getNodeOrNull("/content/site")).thenReturn(node);
+        when(mount.getNode("/content/mount/missing")).thenThrow(new PathNotFoundException());
+
+        assertEquals(node, proxy.unwrap(proxy.getNodeOrNull("/content/site")));
+        assertNull(proxy.getNodeOrNull("/content/mount/missing"));
+        assertNull(proxy.getNodeOrNull("/content/mount/missing"));
+        assertNull(proxy.getPropertyOrNull("/content/site/title"));
+
+        verify(jackrabbit, never()).nodeExists("/content/site");
+        verify(jackrabbit, never()).getNode("/content/site");
+        verify(mount, times(1)).getNode("/content/mount/missing");
+        verify(mount, never()).nodeExists("/content/mount/missing");
+        verify(jackrabbit, times(1)).getPropertyOrNull("/content/site/title");
+    }
+
+    @Test
+    public void testNodeRestoreInvalidatesCachedMisses() throws RepositoryException {
+        JackrabbitSession jackrabbit = mock(JackrabbitSession.class);
+        ProxyJackrabbitSession proxy = new ProxyJackrabbitSession(session.repository, jackrabbit, mount, session.repository.getMountPoints());
+        Node node = mock(Node.class);
+        when(node.getPath()).thenReturn("/content/mount/a");
+        when(mount.getNode("/content/mount/a")).thenReturn(node);
+        Node restored = mock(Node.class);
+        when(mount.getNode("/content/mount/a/b")).thenThrow(new PathNotFoundException()).thenReturn(restored);
+
+        assertNull(proxy.getNodeOrNull("/content/mount/a/b"));
+        assertNull(proxy.getNodeOrNull("/content/mount/a/b"));
+        proxy.getNode("/content/mount/a").restore("1.0", true);
+        verify(node).restore("1.0", true);
+        assertEquals(restored, proxy.unwrap(proxy.getNodeOrNull("/content/mount/a/b")));
+        verify(mount, times(2)).getNode("/content/mount/a/b");
+    }
+
+    @Test
+    public void testRemovingMountParentPurgesMountPoints() throws RepositoryException {
+        Session remover = mock(Session.class, withSettings().extraInterfaces(BatchRemover.class));
+        session = new ProxySession<>(session.repository, jcr, remover, session.repository.getMountPoints());
+        session.removeItem("/content");
+        verify(jcr).removeItem("/content");
+        verify((BatchRemover) remover).removeChildren("/content/mount");
+        verify(remover, never()).getNode("/content/mount");
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_PURGE_BATCH_SIZE_KEY, 2);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+        Node root = mock(Node.class);
+        Node a = mock(Node.class);
+        Node b = mock(Node.class);
+        Node c = mock(Node.class);
+        when(mount.nodeExists("/content/mount")).thenReturn(true);
+        when(mount.getNode("/content/mount")).thenReturn(root);
+        when(root.getNodes()).thenReturn(new NodeIteratorAdapter(Arrays.asList(a, b, c)), new NodeIteratorAdapter(Collections.singletonList(c)));
+
+        // nothing is removed from the mount until the removal is saved
+        session.removeItem("/content");
+        session.refresh(false);
+        session.save();
+        verify(mount, never()).getNode("/content/mount");
+
+        session.removeItem("/content");
+        doThrow(new RepositoryException("failed")).when(jcr).save();
+        assertThrows(RepositoryException.class, session::save);
+        verify(mount, never()).getNode("/content/mount");
+
+        doNothing().when(jcr).save();
+        session.save();
+        InOrder order = inOrder(jcr, mount, a, b, c);
+        order.verify(jcr, times(2)).save();
+        order.verify(a).remove();
+        order.verify(b).remove();
+        order.verify(mount).save();
+        order.verify(c).remove();
+        order.verify(mount).save();
+    }
+
+    @Test
+    public void testMoveIntoTheMountSavesTheCopyFirst() throws RepositoryException {
+        Node copy = stubMoveIntoMount();
+
+        session.move("/content/site", "/content/mount/site");
+        InOrder order = inOrder(jcr, mount);
+        order.verify(mount).save();
+        order.verify(jcr).removeItem("/content/site");
+
+        // the removal of the source is saved, the failed mount save cannot lose the copy
+        doThrow(new RepositoryException("failed")).when(mount).save();
+        assertThrows(RepositoryException.class, session::save);
+        verify(jcr).save();
+        when(mount.nodeExists("/content/mount/site")).thenReturn(true);
+        when(mount.getNode("/content/mount/site")).thenReturn(copy);
+        session.refresh(false);
+        verify(copy, never()).remove();
+    }
+
+    @Test
+    public void testDiscardedMoveRemovesTheCopy() throws RepositoryException {
+        Node copy = stubMoveIntoMount();
+
+        session.move("/content/site", "/content/mount/site");
+        when(mount.nodeExists("/content/mount/site")).thenReturn(true);
+        when(mount.getNode("/content/mount/site")).thenReturn(copy);
+        doThrow(new RepositoryException("failed")).when(jcr).save();
+        assertThrows(RepositoryException.class, session::save);
+
+        // the source is kept, so the saved copy is removed again
+        session.refresh(false);
+        verify(copy).remove();
+        verify(mount, times(2)).save();
+        assertFalse(session.hasPendingChanges());
+    }
+
+    /**
+     * Stubs the move of an empty /content/site to /content/mount/site and
+     * returns the copy on the mount.
+     */
+    private Node stubMoveIntoMount() throws RepositoryException {
+        Node site = mock(Node.class);
+        NodeType type = mock(NodeType.class);
+        when(type.getName()).thenReturn("nt:unstructured");
+        when(site.getPrimaryNodeType()).thenReturn(type);
+        when(site.getMixinNodeTypes()).thenReturn(new NodeType[0]);
+        when(site.getProperties()).thenReturn(new PropertyIteratorAdapter(Collections.emptyList()));
+        when(site.getNodes()).thenReturn(new NodeIteratorAdapter(Collections.emptyIterator()));
+        when(jcr.getNode("/content/site")).thenReturn(site);
+        Node mountRoot = mock(Node.class);
+        Node copy = mock(Node.class);
+        when(mount.getNode("/content/mount")).thenReturn(mountRoot);
+        when(mountRoot.addNode("site", "nt:unstructured")).thenReturn(copy);
+        when(mount.getValueFactory()).thenReturn(mock(ValueFactory.class));
+        return copy;
+    }
+
+    @Test
+    public void testMountPointChangesApplyAtRefreshOrSave() throws RepositoryException {
+        session.repository.setMountPoints(Collections.singleton("/content/other"));
+        assertTrue(session.isMount("/content/mount/a"));
+
+        session.markModified("/content/site");
+        session.refresh(true);
+        // the pending change was made with the previous mount points
+        assertTrue(session.isMount("/content/mount/a"));
+
+        session.save();
+        assertFalse(session.isMount("/content/mount/a"));
+        assertTrue(session.isMount("/content/other/a"));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.apache.jackrabbit.api.security.user.Authorizable;
+import org.apache.jackrabbit.api.security.user.AuthorizableExistsException;
+import org.apache.jackrabbit.api.security.user.Group;
+import org.apache.jackrabbit.api.security.user.User;
+import org.apache.jackrabbit.api.security.user.UserManager;
+import org.apache.sling.jcr.base.spi.RepositoryMount;
+import org.junit.Test;
+
+public class ProxyUserManagerTest {
+
+    @Test
+    public void testDeferredAuthorizablesAreMirroredOnSave() throws RepositoryException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_DEFER_AUTHORIZABLES_KEY, true);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        JackrabbitSession jackrabbit = mock(JackrabbitSession.class);
+        JackrabbitSession mountSession = mock(JackrabbitSession.class);
+        UserManager jcrUsers = mock(UserManager.class);
+        UserManager mountUsers = mock(UserManager.class);
+        when(jackrabbit.getUserManager()).thenReturn(jcrUsers);
+        when(mountSession.getUserManager()).thenReturn(mountUsers);
+        User user = mock(User.class);
+        when(user.getID()).thenReturn("alice");
+        when(user.getPath()).thenReturn("/home/users/a/alice");
+        when(jcrUsers.createUser("alice", "secret")).thenReturn(user);
+        ProxyJackrabbitSession proxy = new ProxyJackrabbitSession(repository, jackrabbit, mountSession, repository.getMountPoints());
+
+        when(mountUsers.createUser("alice", "secret", null, "/home/users/a/alice")).thenThrow(new RepositoryException("unavailable")).thenReturn(user);
+
+        proxy.getUserManager().createUser("alice", "secret");
+        verify(mountUsers, never()).createUser(any(), any(), any(), any());
+
+        // a failed mirror fails the save and is retried by the next one
+        assertThrows(RepositoryException.class, proxy::save);
+        verify(jackrabbit, never()).save();
+        assertEquals(Long.valueOf(1), repository.getMetrics().get("authorizables.mirrorFailures"));
+        proxy.save();
+        verify(mountUsers, times(2)).createUser("alice", "secret", null, "/home/users/a/alice");
+        verify(jackrabbit).save();
+        verify(mountSession).save();
+    }
+
+    @Test
+    public void testFailedMirrorIsReported() throws RepositoryException {
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        JackrabbitSession jackrabbit = mock(JackrabbitSession.class);
+        JackrabbitSession mountSession = mock(JackrabbitSession.class);
+        UserManager jcrUsers = mock(UserManager.class);
+        UserManager mountUsers = mock(UserManager.class);
+        when(jackrabbit.getUserManager()).thenReturn(jcrUsers);
+        when(mountSession.getUserManager()).thenReturn(mountUsers);
+        Group group = mock(Group.class);
+        when(group.getPath()).thenReturn("/home/groups/e/editors");
+        when(jcrUsers.createGroup("editors")).thenReturn(group);
+        when(mountUsers.createGroup("editors", null, "/home/groups/e/editors")).thenThrow(new RepositoryException("unavailable"));
+        when(jcrUsers.createGroup("readers")).thenReturn(group);
+        when(mountUsers.createGroup("readers", null, "/home/groups/e/editors")).thenThrow(new AuthorizableExistsException("readers"));
+        ProxyJackrabbitSession proxy = new ProxyJackrabbitSession(repository, jackrabbit, mountSession, repository.getMountPoints());
+
+        RepositoryException ex = assertThrows(RepositoryException.class, () -> proxy.getUserManager().createGroup("editors"));
+        assertTrue(ex.getMessage().contains("editors"));
+        assertEquals(Long.valueOf(1), repository.getMetrics().get("authorizables.mirrorFailures"));
+
+        // an authorizable that already exists on the mount is mirrored
+        assertEquals(group, proxy.getUserManager().createGroup("readers"));
+        assertEquals(Long.valueOf(1), repository.getMetrics().get("authorizables.mirrorFailures"));
+    }
+
+    @Test
+    public void testMissingAuthorizablesAreListed() throws RepositoryException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(RepositoryMount.MOUNT_DEFER_AUTHORIZABLES_KEY, true);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"), properties);
+        JackrabbitSession jackrabbit = mock(JackrabbitSession.class);
+        JackrabbitSession mountSession = mock(JackrabbitSession.class);
+        UserManager jcrUsers = mock(UserManager.class);
+        UserManager mountUsers = mock(UserManager.class);
+        when(jackrabbit.getUserManager()).thenReturn(jcrUsers);
+        when(mountSession.getUserManager()).thenReturn(mountUsers);
+        User alice = mock(User.class);
+        when(alice.getID()).thenReturn("alice");
+        when(alice.getPath()).thenReturn("/home/users/a/alice");
+        User bob = mock(User.class);
+        when(bob.getID()).thenReturn("bob");
+        when(jcrUsers.createUser("alice", "secret")).thenReturn(alice);
+        when(jcrUsers.findAuthorizables("rep:principalName", null)).thenAnswer(invocation -> Arrays.<Authorizable>asList(alice, bob).iterator());
+        when(mountUsers.getAuthorizable("bob")).thenReturn(bob);
+        ProxyJackrabbitSession proxy = new ProxyJackrabbitSession(repository, jackrabbit, mountSession, repository.getMountPoints());
+        ProxyUserManager users = (ProxyUserManager) proxy.getUserManager();
+
+        // a queued authorizable is not on the mount yet
+        users.createUser("alice", "secret");
+        assertEquals(Collections.singletonList("alice"), users.getMissingOnMount());
+
+        proxy.save();
+        when(mountUsers.getAuthorizable("alice")).thenReturn(alice);
+        assertEquals(Collections.emptyList(), users.getMissingOnMount());
+    }
+}
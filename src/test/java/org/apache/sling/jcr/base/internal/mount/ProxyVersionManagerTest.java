@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionManager;
+
+import org.junit.Before;
+import org.mockito.InOrder;
+import org.junit.Test;
+
+public class ProxyVersionManagerTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testVersionOperationsAreRoutedByPath() throws RepositoryException {
+        Workspace jcrWorkspace = mock(Workspace.class);
+        Workspace mountWorkspace = mock(Workspace.class);
+        when(jcr.getWorkspace()).thenReturn(jcrWorkspace);
+        when(mount.getWorkspace()).thenReturn(mountWorkspace);
+        VersionManager jcrVersions = mock(VersionManager.class);
+        VersionManager mountVersions = mock(VersionManager.class);
+        when(jcrWorkspace.getVersionManager()).thenReturn(jcrVersions);
+        when(mountWorkspace.getVersionManager()).thenReturn(mountVersions);
+        Version jcrVersion = mock(Version.class);
+        Version mountVersion = mock(Version.class);
+        when(jcrVersions.checkin("/content/site")).thenReturn(jcrVersion);
+        when(mountVersions.checkin("/content/mount/a")).thenReturn(mountVersion);
+
+        VersionManager versions = session.getWorkspace().getVersionManager();
+        Version version1 = versions.checkin("/content/site");
+        Version version2 = versions.checkin("/content/mount/a");
+        assertEquals(mountVersion, session.unwrap(version2));
+
+        session.getWorkspace().restore(new Version[] {version2}, false);
+        verify(mountVersions).restore(new Version[] {mountVersion}, false);
+
+        verify(jcrVersions, never()).restore(any(Version[].class), eq(false));
+
+        // versions of both backends are restored per backend, the JCR repository first
+        Version jcrVersion2 = versions.checkin("/content/site");
+        session.getWorkspace().restore(new Version[] {version2, version1, jcrVersion2}, true);
+        InOrder order = inOrder(jcrVersions, mountVersions);
+        order.verify(jcrVersions).restore(new Version[] {jcrVersion, jcrVersion}, true);
+        order.verify(mountVersions).restore(new Version[] {mountVersion}, true);
+
+        // the JCR versions stay restored if the mount fails
+        doThrow(new RepositoryException("mount failed")).when(mountVersions).restore(any(Version[].class), eq(false));
+        assertThrows(RepositoryException.class, () -> session.getWorkspace().restore(new Version[] {version1, version2}, false));
+        verify(jcrVersions).restore(new Version[] {jcrVersion}, false);
+        verify(jcrVersions, never()).restore(new Version[0], false);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
+
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProxyVersionTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testFrozenNodeOfAMountVersionIsReadFromTheMount() throws RepositoryException {
+        Version version = mock(Version.class);
+        when(version.getPath()).thenReturn("/jcr:system/jcr:versionStorage/ab/cd/1.0");
+        Node frozen = mock(Node.class);
+        when(frozen.getPath()).thenReturn("/jcr:system/jcr:versionStorage/ab/cd/1.0/jcr:frozenNode");
+        Node child = mock(Node.class);
+        when(child.getPath()).thenReturn("/jcr:system/jcr:versionStorage/ab/cd/1.0/jcr:frozenNode/a");
+        Node grandchild = mock(Node.class);
+        VersionHistory history = mock(VersionHistory.class);
+        when(version.getFrozenNode()).thenReturn(frozen);
+        when(version.getNode("jcr:frozenNode")).thenReturn(frozen);
+        when(version.getContainingHistory()).thenReturn(history);
+        when(history.getNode("1.0")).thenReturn(version);
+        when(frozen.getNodes()).thenReturn(new NodeIteratorAdapter(Collections.singletonList(child)));
+        when(frozen.hasNode("a")).thenReturn(true);
+        when(child.getNode("b")).thenReturn(grandchild);
+        when(child.getParent()).thenReturn(frozen);
+
+        Version proxy = ProxyVersion.wrap(session, version, true);
+        assertEquals(frozen, session.unwrap(proxy.getNode("jcr:frozenNode")));
+        Node frozenNode = proxy.getFrozenNode();
+        assertTrue(frozenNode.hasNode("a"));
+        NodeIterator children = frozenNode.getNodes();
+        Node first = children.nextNode();
+        assertFalse(children.hasNext());
+        assertEquals(child, session.unwrap(first));
+        assertEquals(grandchild, session.unwrap(first.getNode("b")));
+        assertEquals(frozen, session.unwrap(first.getParent()));
+        Node again = proxy.getContainingHistory().getNode("1.0");
+        assertTrue(again instanceof ProxyVersion);
+        assertTrue(((ProxyVersion) again).mount);
+
+        // nothing is looked up by path in the version storage of the JCR repository
+        verify(jcr, never()).getNode(any());
+        verify(jcr, never()).nodeExists(any());
+        verify(mount, never()).getNode(any());
+        assertEquals(Long.valueOf(0), session.repository.getMetrics().get("jcr.read.calls"));
+    }
+}
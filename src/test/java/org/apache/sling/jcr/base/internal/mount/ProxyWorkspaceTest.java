@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.query.QueryManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProxyWorkspaceTest {
+
+    private Session jcr;
+    private Session mount;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testWorkspaceAndManagersAreReused() throws RepositoryException {
+        Workspace jcrWorkspace = mock(Workspace.class);
+        Workspace mountWorkspace = mock(Workspace.class);
+        when(jcr.getWorkspace()).thenReturn(jcrWorkspace);
+        when(mount.getWorkspace()).thenReturn(mountWorkspace);
+        when(jcrWorkspace.getQueryManager()).thenReturn(mock(QueryManager.class));
+        when(mountWorkspace.getQueryManager()).thenReturn(mock(QueryManager.class));
+
+        assertSame(session.getWorkspace(), session.getWorkspace());
+        assertSame(session.getWorkspace().getQueryManager(), session.getWorkspace().getQueryManager());
+        verify(jcr, times(1)).getWorkspace();
+        verify(mountWorkspace, times(1)).getQueryManager();
+    }
+
+    @Test
+    public void testWorkspaceWritesClearMissingPaths() throws RepositoryException {
+        Workspace workspace = mock(Workspace.class);
+        when(jcr.getWorkspace()).thenReturn(workspace);
+        when(mount.getWorkspace()).thenReturn(mock(Workspace.class));
+        assertFalse(session.nodeExists("/content/copy"));
+        assertFalse(session.nodeExists("/content/copy"));
+        verify(jcr, times(1)).nodeExists("/content/copy");
+
+        session.getWorkspace().copy("/content/site", "/content/copy");
+        verify(workspace).copy("/content/site", "/content/copy");
+        when(jcr.nodeExists("/content/copy")).thenReturn(true);
+        assertTrue(session.nodeExists("/content/copy"));
+    }
+}
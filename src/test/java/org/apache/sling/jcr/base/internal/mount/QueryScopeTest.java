@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.jcr.query.Query;
+import javax.jcr.query.qom.And;
+import javax.jcr.query.qom.ChildNode;
+import javax.jcr.query.qom.DescendantNode;
+import javax.jcr.query.qom.Join;
+import javax.jcr.query.qom.Or;
+import javax.jcr.query.qom.Selector;
+
+import org.junit.Test;
+
+public class QueryScopeTest {
+
+    @Test
+    public void testSql2() {
+        assertEquals("/content/mount", QueryScope.getPath("SELECT * FROM [nt:base] AS s WHERE ISDESCENDANTNODE(s, '/content/mount') AND s.[x] = 'y'", Query.JCR_SQL2));
+        assertEquals("/content", QueryScope.getPath("select * from [nt:base] where isdescendantnode([/content])", Query.JCR_SQL2));
+        assertEquals("/content/a/b", QueryScope.getPath("SELECT * FROM [nt:base] WHERE ISCHILDNODE('/content/a/b') AND ISDESCENDANTNODE('/content')", Query.JCR_SQL2));
+        assertEquals("/it's", QueryScope.getPath("SELECT * FROM [nt:base] WHERE ISSAMENODE('/it''s')", Query.JCR_SQL2));
+
+        assertNull(QueryScope.getPath("SELECT * FROM [nt:base]", Query.JCR_SQL2));
+        assertNull(QueryScope.getPath("SELECT * FROM [nt:base] WHERE ISDESCENDANTNODE('/a') OR [x] = 'y'", Query.JCR_SQL2));
+        assertNull(QueryScope.getPath("SELECT * FROM [nt:base] WHERE NOT ISDESCENDANTNODE('/a')", Query.JCR_SQL2));
+        assertNull(QueryScope.getPath("SELECT * FROM [nt:base] AS a INNER JOIN [nt:base] AS b ON ISCHILDNODE(a, b) WHERE ISDESCENDANTNODE(b, '/a')", Query.JCR_SQL2));
+        assertNull(QueryScope.getPath("SELECT * FROM [nt:base] WHERE ISDESCENDANTNODE('/a') AND ISDESCENDANTNODE('/b')", Query.JCR_SQL2));
+        assertNull(QueryScope.getPath("SELECT * FROM [nt:base] WHERE ISDESCENDANTNODE($path)", Query.JCR_SQL2));
+
+        // keywords in literals are ignored
+        assertEquals("/a", QueryScope.getPath("SELECT * FROM [nt:base] WHERE ISDESCENDANTNODE('/a') AND [x] = 'this OR that'", Query.JCR_SQL2));
+    }
+
+    @Test
+    public void testXPath() {
+        assertEquals("/content/mount", QueryScope.getPath("/jcr:root/content/mount//*[@x = 'y']", "xpath"));
+        assertEquals("/content", QueryScope.getPath("/jcr:root/content//element(*, nt:file)", "xpath"));
+        assertEquals("/content", QueryScope.getPath("/jcr:root/content/foo[@x]", "xpath"));
+        assertEquals("/content", QueryScope.getPath("/jcr:root/content/_x0031_foo//*", "xpath"));
+        assertEquals("/", QueryScope.getPath("/jcr:root//*[@x]", "xpath"));
+
+        assertNull(QueryScope.getPath("//*[@x]", "xpath"));
+        assertNull(QueryScope.getPath("/jcr:root/a//* | /jcr:root/b//*", "xpath"));
+        assertNull(QueryScope.getPath("SELECT * FROM nt:base", "sql"));
+    }
+
+    @Test
+    public void testQueryObjectModel() {
+        Selector selector = mock(Selector.class);
+        DescendantNode descendant = mock(DescendantNode.class);
+        when(descendant.getAncestorPath()).thenReturn("/content");
+        ChildNode child = mock(ChildNode.class);
+        when(child.getParentPath()).thenReturn("/content/mount");
+        And and = mock(And.class);
+        when(and.getConstraint1()).thenReturn(descendant);
+        when(and.getConstraint2()).thenReturn(child);
+        Or or = mock(Or.class);
+        when(or.getConstraint1()).thenReturn(descendant);
+        when(or.getConstraint2()).thenReturn(child);
+
+        assertEquals("/content", QueryScope.getPath(selector, descendant));
+        assertEquals("/content/mount", QueryScope.getPath(selector, and));
+        assertNull(QueryScope.getPath(selector, or));
+        assertNull(QueryScope.getPath(selector, null));
+        assertNull(QueryScope.getPath(mock(Join.class), descendant));
+    }
+}
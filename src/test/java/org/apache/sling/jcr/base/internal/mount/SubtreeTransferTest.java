@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.jcr.ItemExistsException;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import javax.jcr.nodetype.NodeType;
+import javax.jcr.nodetype.PropertyDefinition;
+
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.apache.jackrabbit.commons.iterator.PropertyIteratorAdapter;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class SubtreeTransferTest {
+
+    @Test
+    public void testCopyIsSavedInBatches() throws RepositoryException {
+        Session source = mock(Session.class);
+        Session target = mock(Session.class);
+        ValueFactory factory = mock(ValueFactory.class);
+        when(target.getValueFactory()).thenReturn(factory);
+        Value copiedValue = mock(Value.class);
+        when(factory.createValue("A", PropertyType.STRING)).thenReturn(copiedValue);
+
+        Node c = node("c");
+        Node b = node("b", c);
+        Node d = node("d");
+        Node a = node("a", b, d);
+        Value value = mock(Value.class);
+        when(value.getType()).thenReturn(PropertyType.STRING);
+        when(value.getString()).thenReturn("A");
+        Property title = mock(Property.class);
+        when(title.getName()).thenReturn("title");
+        when(title.getValue()).thenReturn(value);
+        when(title.getDefinition()).thenReturn(mock(PropertyDefinition.class));
+        Property primaryType = mock(Property.class);
+        PropertyDefinition protectedDefinition = mock(PropertyDefinition.class);
+        when(protectedDefinition.isProtected()).thenReturn(true);
+        when(primaryType.getDefinition()).thenReturn(protectedDefinition);
+        when(a.getProperties()).thenReturn(new PropertyIteratorAdapter(Arrays.asList(primaryType, title)));
+        when(source.getNode("/content/a")).thenReturn(a);
+
+        Node parent = mock(Node.class);
+        Node copy = mock(Node.class);
+        when(target.getNode("/mount")).thenReturn(parent);
+        when(parent.addNode("a", "nt:unstructured")).thenReturn(copy);
+        Node childCopy = mock(Node.class);
+        when(copy.addNode(anyString(), eq("nt:unstructured"))).thenReturn(childCopy);
+        when(childCopy.addNode(anyString(), eq("nt:unstructured"))).thenReturn(mock(Node.class));
+
+        assertEquals(4, new SubtreeTransfer(source, target, 2, true).copy("/content/a", "/mount/a"));
+
+        verify(copy).setProperty("title", copiedValue);
+        verify(primaryType, never()).getValue();
+        verify(copy).addNode("b", "nt:unstructured");
+        verify(copy).addNode("d", "nt:unstructured");
+        // after the second and the fourth node, and at the end
+        verify(target, times(3)).save();
+    }
+
+    @Test
+    public void testPartialCopyIsRemovedOnFailure() throws RepositoryException {
+        Session source = mock(Session.class);
+        Session target = mock(Session.class);
+        when(target.getValueFactory()).thenReturn(mock(ValueFactory.class));
+        Node a = node("a", node("b"), node("c"));
+        when(source.getNode("/content/a")).thenReturn(a);
+
+        Node parent = mock(Node.class);
+        Node copy = mock(Node.class);
+        when(target.getNode("/mount")).thenReturn(parent);
+        when(target.getNode("/mount/a")).thenReturn(copy);
+        when(target.nodeExists("/mount/a")).thenReturn(false, true);
+        when(parent.addNode("a", "nt:unstructured")).thenReturn(copy);
+        when(copy.addNode("b", "nt:unstructured")).thenReturn(mock(Node.class));
+        when(copy.addNode("c", "nt:unstructured")).thenThrow(new RepositoryException("quota exceeded"));
+
+        RepositoryException ex = assertThrows(RepositoryException.class,
+                () -> new SubtreeTransfer(source, target, 2, true).copy("/content/a", "/mount/a"));
+        assertEquals("quota exceeded", ex.getMessage());
+
+        // the first batch was saved, it is removed again
+        InOrder order = inOrder(target, copy);
+        order.verify(target).save();
+        order.verify(target).refresh(false);
+        order.verify(copy).remove();
+        order.verify(target).save();
+    }
+
+    @Test
+    public void testExistingTargetIsNotTouched() throws RepositoryException {
+        Session source = mock(Session.class);
+        Session target = mock(Session.class);
+        when(target.nodeExists("/mount/a")).thenReturn(true);
+
+        assertThrows(ItemExistsException.class, () -> new SubtreeTransfer(source, target, 2, true).copy("/content/a", "/mount/a"));
+        verify(target, never()).getNode(anyString());
+        verify(target, never()).save();
+    }
+
+    private static Node node(String name, Node... children) throws RepositoryException {
+        Node node = mock(Node.class);
+        NodeType type = mock(NodeType.class);
+        when(type.getName()).thenReturn("nt:unstructured");
+        when(node.getName()).thenReturn(name);
+        when(node.getPrimaryNodeType()).thenReturn(type);
+        when(node.getMixinNodeTypes()).thenReturn(new NodeType[0]);
+        when(node.getProperties()).thenReturn(new PropertyIteratorAdapter(Collections.emptyList()));
+        when(node.getNodes()).thenReturn(new NodeIteratorAdapter(Arrays.asList(children)));
+        return node;
+    }
+}
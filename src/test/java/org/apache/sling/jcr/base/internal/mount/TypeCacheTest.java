@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.base.internal.mount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.jcr.NamespaceRegistry;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.nodetype.NodeType;
+import javax.jcr.nodetype.NodeTypeManager;
+
+import org.apache.jackrabbit.commons.iterator.NodeTypeIteratorAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TypeCacheTest {
+
+    private Session jcr;
+    private Session mount;
+    private Session systemJcr;
+    private ProxySession<Session> session;
+
+    @Before
+    public void setup() throws RepositoryException {
+        jcr = mock(Session.class);
+        mount = mock(Session.class);
+        systemJcr = mock(Session.class, RETURNS_DEEP_STUBS);
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        repository.setSystemLogin(() -> new ProxySession<>(repository, systemJcr, mock(Session.class), repository.getMountPoints()));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+    }
+
+    @Test
+    public void testNamespacesAreSharedUntilRegistration() throws RepositoryException {
+        Workspace jcrWorkspace = mock(Workspace.class);
+        Workspace mountWorkspace = mock(Workspace.class);
+        NamespaceRegistry registry = mock(NamespaceRegistry.class);
+        when(jcr.getWorkspace()).thenReturn(jcrWorkspace);
+        when(mount.getWorkspace()).thenReturn(mountWorkspace);
+        when(jcrWorkspace.getNamespaceRegistry()).thenReturn(registry);
+        when(mountWorkspace.getNamespaceRegistry()).thenReturn(mock(NamespaceRegistry.class));
+        when(registry.getPrefixes()).thenReturn(new String[] {"sling"});
+        when(registry.getURIs()).thenReturn(new String[] {"http://sling.apache.org/jcr/sling/1.0"});
+        when(registry.getURI("sling")).thenReturn("http://sling.apache.org/jcr/sling/1.0");
+        ProxySession<Session> session2 = new ProxySession<>(session.repository, jcr, mount, session.repository.getMountPoints());
+
+        assertEquals("sling", session.getWorkspace().getNamespaceRegistry().getPrefix("http://sling.apache.org/jcr/sling/1.0"));
+        assertEquals("http://sling.apache.org/jcr/sling/1.0", session2.getWorkspace().getNamespaceRegistry().getURI("sling"));
+        verify(registry, times(1)).getPrefixes();
+        verify(registry, times(1)).getURI("sling");
+        // changes are observed through the session of the proxy
+        verify(systemJcr.getWorkspace().getObservationManager(), times(2)).addEventListener(any(), anyInt(), any(), eq(true), any(), any(), eq(false));
+        verify(jcrWorkspace, never()).getObservationManager();
+
+        session2.getWorkspace().getNamespaceRegistry().registerNamespace("test", "http://test");
+        session.getWorkspace().getNamespaceRegistry().getURI("sling");
+        verify(registry, times(2)).getPrefixes();
+    }
+
+    @Test
+    public void testSnapshotsAreKeptUntilTheRepositoryIsClosed() throws RepositoryException {
+        Workspace jcrWorkspace = mock(Workspace.class);
+        NamespaceRegistry registry = mock(NamespaceRegistry.class);
+        when(jcr.getWorkspace()).thenReturn(jcrWorkspace);
+        when(mount.getWorkspace()).thenReturn(mock(Workspace.class));
+        when(jcrWorkspace.getNamespaceRegistry()).thenReturn(registry);
+        when(registry.getPrefixes()).thenReturn(new String[] {"sling"});
+        ProxySession<Session> session2 = new ProxySession<>(session.repository, jcr, mount, session.repository.getMountPoints());
+
+        session.getWorkspace().getNamespaceRegistry().getPrefixes();
+        session.logout();
+        session2.getWorkspace().getNamespaceRegistry().getPrefixes();
+        verify(registry, times(1)).getPrefixes();
+        verify(systemJcr, never()).logout();
+
+        session.repository.close();
+        verify(systemJcr).logout();
+        session2.getWorkspace().getNamespaceRegistry().getPrefixes();
+        verify(registry, times(2)).getPrefixes();
+    }
+
+    @Test
+    public void testNodeTypesAreReadThroughTheObservedSession() throws RepositoryException {
+        Workspace jcrWorkspace = mock(Workspace.class);
+        NodeTypeManager manager = mock(NodeTypeManager.class);
+        when(jcr.getWorkspace()).thenReturn(jcrWorkspace);
+        when(mount.getWorkspace()).thenReturn(mock(Workspace.class));
+        when(jcrWorkspace.getNodeTypeManager()).thenReturn(manager);
+        NodeType base = mock(NodeType.class);
+        when(base.getName()).thenReturn("nt:base");
+        when(systemJcr.getWorkspace().getNodeTypeManager().getAllNodeTypes()).thenReturn(new NodeTypeIteratorAdapter(Collections.singletonList(base)));
+        when(manager.hasNodeType("n:base")).thenReturn(true);
+
+        NodeTypeManager proxy = session.getWorkspace().getNodeTypeManager();
+        assertTrue(proxy.hasNodeType("nt:base"));
+        // a prefix remapped by the session is not in the snapshot
+        assertTrue(proxy.hasNodeType("n:base"));
+        verify(manager, never()).getAllNodeTypes();
+        verify(manager, never()).hasNodeType("nt:base");
+    }
+
+    @Test
+    public void testLookupsAreDelegatedIfNotObserved() throws RepositoryException {
+        ProxyRepository<Repository> repository = new ProxyRepository<>(mock(Repository.class), mock(Repository.class), Collections.singleton("/content/mount"));
+        session = new ProxySession<>(repository, jcr, mount, repository.getMountPoints());
+        Workspace jcrWorkspace = mock(Workspace.class);
+        NamespaceRegistry registry = mock(NamespaceRegistry.class);
+        NodeTypeManager manager = mock(NodeTypeManager.class);
+        when(jcr.getWorkspace()).thenReturn(jcrWorkspace);
+        when(mount.getWorkspace()).thenReturn(mock(Workspace.class));
+        when(jcrWorkspace.getNamespaceRegistry()).thenReturn(registry);
+        when(jcrWorkspace.getNodeTypeManager()).thenReturn(manager);
+        when(registry.getURI("sling")).thenReturn("http://sling.apache.org/jcr/sling/1.0");
+        when(manager.hasNodeType("nt:base")).thenReturn(true);
+
+        assertEquals("http://sling.apache.org/jcr/sling/1.0", session.getWorkspace().getNamespaceRegistry().getURI("sling"));
+        assertTrue(session.getWorkspace().getNodeTypeManager().hasNodeType("nt:base"));
+        verify(registry, never()).getPrefixes();
+        verify(manager, never()).getAllNodeTypes();
+    }
+}